@@ -0,0 +1,345 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+
+/**
+ * Microbenchmarks of the Board hot paths.
+ *
+ * Each benchmark is warmed up and then measured over several fixed-length
+ * iterations. The time and the bytes allocated per operation are reported;
+ * allocation is read from the HotSpot per-thread allocation counter.
+ * Moves are measured on an empty, a low and a high board; drops are
+ * measured clearing 0 to 4 lines.
+ *
+ * A drop changes the board, so every drop operation first resets the frozen
+ * rows and the current piece. The reset is measured on its own as well, and
+ * the drop is reported net of it.
+ *
+ * Run from the project root with:
+ * javac -cp wk.jar -d out src/model/*.java bench/model/*.java
+ * java -cp out:wk.jar model.BoardBenchmark
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class BoardBenchmark {
+
+    /**
+     * Warmup time of each benchmark in nanoseconds.
+     */
+    private static final long WARMUP_NANOS = 1000000000L;
+
+    /**
+     * Length of each measured iteration in nanoseconds.
+     */
+    private static final long ITERATION_NANOS = 500000000L;
+
+    /**
+     * Number of measured iterations of each benchmark.
+     */
+    private static final int ITERATIONS = 5;
+
+    /**
+     * Number of operations run between clock readings.
+     */
+    private static final int BATCH = 1000;
+
+    /**
+     * Board width used by the benchmarks.
+     */
+    private static final int WIDTH = 10;
+
+    /**
+     * Board height used by the benchmarks.
+     */
+    private static final int HEIGHT = 20;
+
+    /**
+     * Number of filled rows of the low and high fill states.
+     */
+    private static final int[] FILLED_ROWS = {0, 6, 14};
+
+    /**
+     * Names of the fill states.
+     */
+    private static final String[] FILL_NAMES = {"empty", "low", "high"};
+
+    /**
+     * Number of rows of the line clear fill states.
+     */
+    private static final int CLEAR_ROWS = 4;
+
+    /**
+     * Position of a vertical I piece covering the rightmost column.
+     */
+    private static final int VERTICAL_I_X = WIDTH - 3;
+
+    /**
+     * Listener counts of the notification benchmarks.
+     */
+    private static final int[] LISTENERS = {0, 1, 8};
+
+    /**
+     * The HotSpot thread bean, or null if allocation cannot be measured.
+     */
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    /**
+     * Results are folded into this field so the work cannot be optimized away.
+     */
+    private static volatile int mySink;
+
+    /**
+     * Private constructor, to prevent instantiation of this class.
+     */
+    private BoardBenchmark() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Runs all benchmarks and prints one line per benchmark.
+     *
+     * @param theArgs Command line arguments are ignored.
+     */
+    public static void main(final String[] theArgs) {
+        System.out.printf("%-32s %12s %12s %10s%n", "benchmark", "ns/op", "min ns/op",
+                          "B/op");
+        for (int i = 0; i < FILLED_ROWS.length; i++) {
+            final int[] rows = fill(FILLED_ROWS[i]);
+            final Board board = board(rows, 0);
+            final int top = HEIGHT - CLEAR_ROWS;
+            bench("left+right " + FILL_NAMES[i], () -> {
+                board.left();
+                board.right();
+                return 0;
+            });
+            bench("rotateCW+rotateCCW " + FILL_NAMES[i], () -> {
+                board.rotateCW();
+                board.rotateCCW();
+                return 0;
+            });
+            bench("down " + FILL_NAMES[i], () -> {
+                board.setCurrentPiece(TetrisPiece.T, WIDTH / 2 - 1, top, Rotation.NONE);
+                board.down();
+                return 0;
+            });
+            benchNet("drop " + FILL_NAMES[i], () -> {
+                board.setFrozenRows(rows, Block.J);
+                board.setCurrentPiece(TetrisPiece.T, WIDTH / 2 - 1, top, Rotation.NONE);
+                return 0;
+            }, () -> {
+                board.drop();
+                return 0;
+            });
+        }
+        for (int lines = 0; lines <= CLEAR_ROWS; lines++) {
+            final int[] rows = well(lines);
+            final Board board = board(rows, 0);
+            benchNet("drop+checkRows " + lines + " lines", () -> {
+                board.setFrozenRows(rows, Block.J);
+                board.setCurrentPiece(TetrisPiece.I, VERTICAL_I_X, HEIGHT - CLEAR_ROWS,
+                                      Rotation.QUARTER);
+                return 0;
+            }, () -> {
+                board.drop();
+                return 0;
+            });
+        }
+        final MovableTetrisPiece piece =
+            new MovableTetrisPiece(TetrisPiece.T, new Point(WIDTH / 2, HEIGHT / 2),
+                                   Rotation.QUARTER);
+        bench("getBoardPoints", () -> piece.getBoardPoints().length);
+        for (final int listeners : LISTENERS) {
+            final Board board = board(fill(0), listeners);
+            bench("left+right " + listeners + " listeners", () -> {
+                board.left();
+                board.right();
+                return 0;
+            });
+        }
+    }
+
+    /**
+     * Creates a Board in a fill state with a T piece near the top.
+     *
+     * @param theRows the occupancy masks of the frozen rows.
+     * @param theListeners the number of move listeners to attach.
+     * @return the Board.
+     */
+    private static Board board(final int[] theRows, final int theListeners) {
+        final Board board = new Board(WIDTH, HEIGHT);
+        for (int i = 0; i < theListeners; i++) {
+            board.addPieceMovedListener(new NullListener());
+        }
+        board.newGame();
+        board.setFrozenRows(theRows, Block.J);
+        board.setCurrentPiece(TetrisPiece.T, WIDTH / 2 - 1, HEIGHT - CLEAR_ROWS,
+                              Rotation.NONE);
+        return board;
+    }
+
+    /**
+     * Creates a fill state with one or two random holes in each filled row.
+     *
+     * @param theRows the number of filled rows.
+     * @return the occupancy masks of the rows.
+     */
+    private static int[] fill(final int theRows) {
+        final Random random = new Random(theRows);
+        final int[] rows = new int[theRows];
+        for (int y = 0; y < theRows; y++) {
+            rows[y] = (1 << WIDTH) - 1 & ~(1 << random.nextInt(WIDTH))
+                      & ~(1 << random.nextInt(WIDTH));
+        }
+        return rows;
+    }
+
+    /**
+     * Creates a fill state with a well in the rightmost column, such that a
+     * vertical I piece dropped into the well completes a number of rows.
+     *
+     * @param theLines the number of rows the I piece completes.
+     * @return the occupancy masks of the rows.
+     */
+    private static int[] well(final int theLines) {
+        final int[] rows = new int[CLEAR_ROWS];
+        for (int y = 0; y < CLEAR_ROWS; y++) {
+            rows[y] = (1 << WIDTH - 1) - 1;
+            if (y >= theLines) {
+                rows[y] &= ~1;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Measures an operation that needs a setup before every run: the setup
+     * alone, then the setup and the operation, and prints the difference.
+     *
+     * @param theName the name of the benchmark.
+     * @param theSetup the setup, run before every operation.
+     * @param theOperation the benchmarked operation.
+     */
+    private static void benchNet(final String theName, final Operation theSetup,
+                                 final Operation theOperation) {
+        final double[] setup = bench(theName + " setup", theSetup);
+        final double[] total = bench(theName + " +setup",
+                                     () -> theSetup.run() + theOperation.run());
+        String bytesPerOp = "n/a";
+        if (THREADS != null) {
+            bytesPerOp = String.format("%.1f", total[2] - setup[2]);
+        }
+        System.out.printf("%-32s %12.1f %12.1f %10s%n", theName + " net", total[0] - setup[0],
+                          total[1] - setup[1], bytesPerOp);
+    }
+
+    /**
+     * Warms up and measures a benchmark and prints its results.
+     *
+     * @param theName the name of the benchmark.
+     * @param theOperation the benchmarked operation.
+     * @return the average and the minimum time and the bytes allocated per operation.
+     */
+    private static double[] bench(final String theName, final Operation theOperation) {
+        runFor(theOperation, WARMUP_NANOS);
+        double total = 0;
+        double min = Double.MAX_VALUE;
+        long bytes = 0;
+        long ops = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            final long allocated = allocatedBytes();
+            final long start = System.nanoTime();
+            final long count = runFor(theOperation, ITERATION_NANOS);
+            final double nanosPerOp = (double) (System.nanoTime() - start) / count;
+            bytes += allocatedBytes() - allocated;
+            ops += count;
+            total += nanosPerOp;
+            min = Math.min(min, nanosPerOp);
+        }
+        String bytesPerOp = "n/a";
+        if (THREADS != null) {
+            bytesPerOp = String.format("%.1f", (double) bytes / ops);
+        }
+        System.out.printf("%-32s %12.1f %12.1f %10s%n", theName, total / ITERATIONS, min,
+                          bytesPerOp);
+        return new double[] {total / ITERATIONS, min, (double) bytes / ops};
+    }
+
+    /**
+     * Runs an operation in batches for at least a given time.
+     *
+     * @param theOperation the operation.
+     * @param theNanos the minimum running time in nanoseconds.
+     * @return the number of operations run.
+     */
+    private static long runFor(final Operation theOperation, final long theNanos) {
+        final long end = System.nanoTime() + theNanos;
+        long count = 0;
+        int sink = 0;
+        do {
+            for (int i = 0; i < BATCH; i++) {
+                sink += theOperation.run();
+            }
+            count += BATCH;
+        } while (System.nanoTime() < end);
+        mySink += sink;
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread.
+     *
+     * @return the allocated bytes, or 0 if allocation cannot be measured.
+     */
+    private static long allocatedBytes() {
+        long result = 0;
+        if (THREADS != null) {
+            result = THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the HotSpot thread bean if the JVM provides one.
+     *
+     * @return the thread bean, or null.
+     */
+    private static com.sun.management.ThreadMXBean threadBean() {
+        com.sun.management.ThreadMXBean result = null;
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+            result = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        }
+        return result;
+    }
+
+    /**
+     * A benchmarked operation.
+     */
+    private interface Operation {
+
+        /**
+         * Runs the operation once.
+         *
+         * @return a value that is consumed so the work cannot be optimized away.
+         */
+        int run();
+    }
+
+    /**
+     * A PieceMovedListener that ignores every move.
+     */
+    private static class NullListener implements PieceMovedListener {
+
+        @Override
+        public void pieceMoved(final BoardChange theChange) {
+            mySink++;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * A PieceGenerator dealing the pieces from shuffled bags of all seven pieces.
+ * Every piece appears once in each group of seven, so there are never more
+ * than twelve pieces between two pieces of the same type.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class BagPieceGenerator extends SeededPieceGenerator {
+
+    /**
+     * The number of random draws used to shuffle one bag.
+     */
+    private static final int DRAWS_PER_BAG = PIECES.length - 1;
+
+    /**
+     * The pieces of the current bag.
+     */
+    private final TetrisPiece[] myBag = new TetrisPiece[PIECES.length];
+
+    /**
+     * The number of bags dealt, including the current bag.
+     */
+    private long myBags;
+
+    /**
+     * The index of the next piece in the current bag.
+     */
+    private int myIndex = PIECES.length;
+
+    /**
+     * Constructs a BagPieceGenerator at the start of its sequence.
+     *
+     * @param theSeed the seed of the sequence.
+     */
+    public BagPieceGenerator(final long theSeed) {
+        super(theSeed);
+    }
+
+    @Override
+    public TetrisPiece next() {
+        if (myIndex == myBag.length) {
+            shuffle();
+        }
+        return myBag[myIndex++];
+    }
+
+    @Override
+    public long getPosition() {
+        return (myBags - 1) * myBag.length + myIndex;
+    }
+
+    @Override
+    public void setPosition(final long thePosition) {
+        if (thePosition < 0) {
+            throw new IllegalArgumentException("Invalid position: " + thePosition);
+        }
+        myBags = thePosition / myBag.length;
+        seek(myBags * DRAWS_PER_BAG);
+        shuffle();
+        myIndex = (int) (thePosition % myBag.length);
+    }
+
+    @Override
+    public PieceGenerator copy() {
+        final BagPieceGenerator result = new BagPieceGenerator(getSeed());
+        result.setPosition(getPosition());
+        return result;
+    }
+
+    /**
+     * Fills the bag with a new random permutation of the pieces.
+     */
+    private void shuffle() {
+        System.arraycopy(PIECES, 0, myBag, 0, PIECES.length);
+        for (int i = myBag.length - 1; i > 0; i--) {
+            final int j = nextInt(i + 1);
+            final TetrisPiece swap = myBag[i];
+            myBag[i] = myBag[j];
+            myBag[j] = swap;
+        }
+        myBags++;
+        myIndex = 0;
+    }
+}
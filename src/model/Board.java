@@ -7,18 +7,22 @@
 package model;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Observable;
-import model.wallkicks.WallKick;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Represents a Tetris board.
  * 
+ * Listeners subscribe to the events they need: moves of the current piece,
+ * frozen pieces, cleared rows, changes of the next piece and the end of the
+ * game. An event without listeners is not created at all. Listeners are
+ * called in the order they were added, on the thread that changes the board.
+ * 
  * @author Alan Fowler
  * @version 1.2
  */
-public class Board extends Observable {
+public class Board {
 
     // Class constants
     
@@ -32,6 +36,26 @@ public class Board extends Observable {
      */
     private static final int DEFAULT_HEIGHT = 20;
 
+    /**
+     * Maximum width of a Tetris game board; one row must fit in an int bit mask.
+     */
+    private static final int MAX_WIDTH = Integer.SIZE;
+
+    /**
+     * Number of empty rows above the board where new pieces enter.
+     */
+    private static final int SPAWN_ROWS = 4;
+
+    /**
+     * Row indices reported when no rows are cleared.
+     */
+    private static final int[] NO_ROWS = new int[0];
+
+    /**
+     * The command op codes of apply, indexed by BoardAction ordinal.
+     */
+    private static final BoardAction[] COMMANDS = BoardAction.values();
+
     
     // Instance fields
     
@@ -46,9 +70,43 @@ public class Board extends Observable {
     private final int myHeight;
     
     /**
-     * The frozen blocks on the board.
+     * Occupancy of the frozen blocks, one bit mask per row.
+     * Bit x of myRowMasks[y] is set when the cell (x, y) holds a frozen block.
+     */
+    private int[] myRowMasks;
+
+    /**
+     * Block types of the frozen blocks stored row by row as Block ordinals.
+     * The type of cell (x, y) is at index y * myWidth + x; Block.EMPTY marks an empty cell.
+     */
+    private byte[] myBlockTypes;
+
+    /**
+     * The bit mask of a completely filled row.
+     */
+    private final int myFullRow;
+
+    /**
+     * Height of each column: one more than the row of its highest frozen block, or 0.
+     */
+    private int[] myColumnHeights;
+
+    /**
+     * Whether myRowMasks, myBlockTypes and myColumnHeights are shared with a
+     * Snapshot and must be copied before they change.
      */
-    private final List<Block[]> myFrozenBlocks;
+    private boolean myFrozenShared;
+
+    /**
+     * Zobrist keys of the cells, indexed like myBlockTypes.
+     */
+    private final long[] myCellKeys;
+
+    /**
+     * Zobrist hash of the frozen blocks, updated whenever a cell is filled or
+     * rows are removed.
+     */
+    private long myFrozenHash;
     
     /**
      * The game over state.
@@ -64,6 +122,11 @@ public class Board extends Observable {
      * The current index in the non random piece sequence.
      */
     private int mySequenceIndex;
+
+    /**
+     * Generates the pieces when there is no non random sequence.
+     */
+    private PieceGenerator myGenerator;
     
     /**
      * Piece that is next to play.
@@ -73,14 +136,64 @@ public class Board extends Observable {
     /**
      * Piece that is currently movable.
      */
-    private MovableTetrisPiece myCurrentPiece;
+    private final PieceCursor myCurrentPiece;
+
+    /**
+     * The movable piece as listeners last saw it.
+     */
+    private final PieceCursor myReportedPiece;
+
+    /**
+     * The piece that froze during the current down movement.
+     */
+    private final PieceCursor myFrozenPiece;
+
+    /**
+     * The number of pieces that have entered this board since it was created.
+     */
+    private long myPieceCount;
+
+    /**
+     * The number of moves and freezes of the current piece since this board
+     * was created; a command that changes it succeeded.
+     */
+    private long myChangeCount;
+
+    /**
+     * Whether a command batch is being applied, so moves are not reported one by one.
+     */
+    private boolean myBatching;
 
     /**
-     * A flag to indicate when moving a piece down is part of a drop operation.
-     * This is used to prevent the Board from notifying observers for each incremental
-     * down movement in the drop.
+     * Whether the current piece moved during a batch since listeners last saw it.
      */
-    private boolean myDrop;
+    private boolean myBatchMoved;
+
+    /**
+     * The PieceMovedListeners. Listener arrays are replaced, never changed,
+     * so a listener may add or remove listeners while it is called.
+     */
+    private PieceMovedListener[] myMovedListeners = new PieceMovedListener[0];
+
+    /**
+     * The PieceFrozenListeners.
+     */
+    private PieceFrozenListener[] myFrozenListeners = new PieceFrozenListener[0];
+
+    /**
+     * The RowsClearedListeners.
+     */
+    private RowsClearedListener[] myClearedListeners = new RowsClearedListener[0];
+
+    /**
+     * The NextPieceListeners.
+     */
+    private NextPieceListener[] myNextPieceListeners = new NextPieceListener[0];
+
+    /**
+     * The GameOverListeners.
+     */
+    private GameOverListener[] myGameOverListeners = new GameOverListener[0];
     
     // Constructors
 
@@ -100,12 +213,24 @@ public class Board extends Observable {
      */
     public Board(final int theWidth, final int theHeight) {
         super();
+        if (theWidth < 1 || theWidth > MAX_WIDTH || theHeight < 1) {
+            throw new IllegalArgumentException("Invalid board size: "
+                                               + theWidth + " x " + theHeight);
+        }
         myWidth = theWidth;
         myHeight = theHeight;
-        myFrozenBlocks = new LinkedList<Block[]>();
+        myRowMasks = new int[theHeight];
+        myBlockTypes = new byte[theWidth * theHeight];
+        myFullRow = -1 >>> (Integer.SIZE - theWidth);
+        myColumnHeights = new int[theWidth];
+        myCellKeys = Zobrist.cellKeys(theWidth, theHeight);
+        myCurrentPiece = new PieceCursor();
+        myReportedPiece = new PieceCursor();
+        myFrozenPiece = new PieceCursor();
         
         myNonRandomPieces = new ArrayList<TetrisPiece>();
         mySequenceIndex = 0;
+        myGenerator = new UniformPieceGenerator(ThreadLocalRandom.current().nextLong());
         
         /*  myNextPiece and myCurrentPiece
          *  are initialized by the newGame() method.
@@ -135,6 +260,41 @@ public class Board extends Observable {
     
 
 
+    /**
+     * Returns a 64-bit Zobrist hash of the board state: the occupancy of the
+     * frozen cells and the type, position and rotation of the current piece.
+     * Equal states of boards of the same size have equal hashes, so the hash
+     * can key caches of evaluation results such as a TranspositionTable.
+     * 
+     * @return the hash of the board state.
+     */
+    public long getHash() {
+        long result = myFrozenHash;
+        if (myCurrentPiece.hasPiece()) {
+            result ^= Zobrist.pieceKey(myCurrentPiece.getShape(), myCurrentPiece.getX(),
+                                       myCurrentPiece.getY());
+        }
+        return result;
+    }
+
+    /**
+     * Returns a 64-bit Zobrist hash of the occupancy of the frozen cells only.
+     * 
+     * @return the hash of the frozen cells.
+     */
+    public long getFrozenHash() {
+        return myFrozenHash;
+    }
+
+    /**
+     * Returns whether the current game is over.
+     * 
+     * @return true if the game is over.
+     */
+    public boolean isGameOver() {
+        return myGameOver;
+    }
+
     /**
      * Resets the board for a new game.
      * This method must be called before the first game
@@ -143,17 +303,16 @@ public class Board extends Observable {
     public void newGame() {
 
         mySequenceIndex = 0;
-        myFrozenBlocks.clear();
-        for (int h = 0; h < myHeight; h++) {
-            myFrozenBlocks.add(new Block[myWidth]);
-        }
+        ownFrozenBlocks();
+        Arrays.fill(myRowMasks, 0);
+        Arrays.fill(myBlockTypes, (byte) Block.EMPTY.ordinal());
+        Arrays.fill(myColumnHeights, 0);
+        myFrozenHash = 0;
 
         myGameOver = false;
-        myCurrentPiece = nextMovablePiece(true);
-        myDrop = false;
+        nextMovablePiece(true);
         
-        setChanged();
-        notifyObservers(new BoardData().getBoardData());
+        notifyChange(null, NO_ROWS, true);
     }
 
     /**
@@ -164,7 +323,168 @@ public class Board extends Observable {
     public void setPieceSequence(final List<TetrisPiece> thePieces) {
         myNonRandomPieces = new ArrayList<TetrisPiece>(thePieces);
         mySequenceIndex = 0;
-        myCurrentPiece = nextMovablePiece(true);
+        nextMovablePiece(true);
+    }
+    
+    /**
+     * Sets the generator of the pieces. The generator is used whenever
+     * no non random sequence is set, so setting it clears the sequence.
+     * A new board uses a UniformPieceGenerator with a random seed.
+     * 
+     * @param theGenerator the PieceGenerator; it must not be shared with other boards.
+     */
+    public void setPieceGenerator(final PieceGenerator theGenerator) {
+        if (theGenerator == null) {
+            throw new IllegalArgumentException("The piece generator must not be null");
+        }
+        myGenerator = theGenerator;
+        myNonRandomPieces = new ArrayList<TetrisPiece>();
+        mySequenceIndex = 0;
+        nextMovablePiece(true);
+    }
+
+    /**
+     * Returns the generator of the pieces.
+     * 
+     * @return the PieceGenerator.
+     */
+    public PieceGenerator getPieceGenerator() {
+        return myGenerator;
+    }
+
+    /**
+     * Takes a snapshot of the game: the frozen blocks, the current and next
+     * piece, the position in the piece sequence and the piece generator, and
+     * the game over state. Restoring it later returns the board to this state.
+     * 
+     * The frozen blocks are not copied. The board and its snapshots share them
+     * until the board changes them, which copies them once, so taking a snapshot
+     * and moving the current piece costs no more than a few allocations.
+     * 
+     * @return the snapshot.
+     */
+    public Snapshot snapshot() {
+        myFrozenShared = true;
+        return new Snapshot(this);
+    }
+
+    /**
+     * Adds a listener for moves of the current piece and resets of the board.
+     * 
+     * @param theListener the listener; added once however often this is called.
+     */
+    public void addPieceMovedListener(final PieceMovedListener theListener) {
+        myMovedListeners = addListener(myMovedListeners, theListener);
+    }
+
+    /**
+     * Removes a listener for moves of the current piece.
+     * 
+     * @param theListener the listener.
+     */
+    public void removePieceMovedListener(final PieceMovedListener theListener) {
+        myMovedListeners = removeListener(myMovedListeners, theListener);
+    }
+
+    /**
+     * Adds a listener for frozen pieces.
+     * 
+     * @param theListener the listener; added once however often this is called.
+     */
+    public void addPieceFrozenListener(final PieceFrozenListener theListener) {
+        myFrozenListeners = addListener(myFrozenListeners, theListener);
+    }
+
+    /**
+     * Removes a listener for frozen pieces.
+     * 
+     * @param theListener the listener.
+     */
+    public void removePieceFrozenListener(final PieceFrozenListener theListener) {
+        myFrozenListeners = removeListener(myFrozenListeners, theListener);
+    }
+
+    /**
+     * Adds a listener for cleared rows.
+     * 
+     * @param theListener the listener; added once however often this is called.
+     */
+    public void addRowsClearedListener(final RowsClearedListener theListener) {
+        myClearedListeners = addListener(myClearedListeners, theListener);
+    }
+
+    /**
+     * Removes a listener for cleared rows.
+     * 
+     * @param theListener the listener.
+     */
+    public void removeRowsClearedListener(final RowsClearedListener theListener) {
+        myClearedListeners = removeListener(myClearedListeners, theListener);
+    }
+
+    /**
+     * Adds a listener for changes of the next piece.
+     * 
+     * @param theListener the listener; added once however often this is called.
+     */
+    public void addNextPieceListener(final NextPieceListener theListener) {
+        myNextPieceListeners = addListener(myNextPieceListeners, theListener);
+    }
+
+    /**
+     * Removes a listener for changes of the next piece.
+     * 
+     * @param theListener the listener.
+     */
+    public void removeNextPieceListener(final NextPieceListener theListener) {
+        myNextPieceListeners = removeListener(myNextPieceListeners, theListener);
+    }
+
+    /**
+     * Adds a listener for the end of the game.
+     * 
+     * @param theListener the listener; added once however often this is called.
+     */
+    public void addGameOverListener(final GameOverListener theListener) {
+        myGameOverListeners = addListener(myGameOverListeners, theListener);
+    }
+
+    /**
+     * Removes a listener for the end of the game.
+     * 
+     * @param theListener the listener.
+     */
+    public void removeGameOverListener(final GameOverListener theListener) {
+        myGameOverListeners = removeListener(myGameOverListeners, theListener);
+    }
+
+    /**
+     * Returns the game to the state of a snapshot and notifies listeners of a reset.
+     * The snapshot may come from another board of the same size; the piece
+     * generator of this board is then moved to the snapshot's position in
+     * its own sequence. The non random piece sequence is not changed.
+     * 
+     * @param theSnapshot the snapshot.
+     */
+    public void restore(final Snapshot theSnapshot) {
+        if (theSnapshot.myWidth != myWidth || theSnapshot.myHeight != myHeight) {
+            throw new IllegalArgumentException("Snapshot of a " + theSnapshot.myWidth + " x "
+                                               + theSnapshot.myHeight + " board");
+        }
+        myRowMasks = theSnapshot.myRowMasks;
+        myBlockTypes = theSnapshot.myBlockTypes;
+        myColumnHeights = theSnapshot.myColumnHeights;
+        myFrozenShared = true;
+        myFrozenHash = theSnapshot.myFrozenHash;
+        myCurrentPiece.set(theSnapshot.myCurrentPiece);
+        myNextPiece = theSnapshot.myNextPiece;
+        mySequenceIndex = theSnapshot.mySequenceIndex;
+        if (myGenerator.getPosition() != theSnapshot.myGeneratorPosition) {
+            myGenerator.setPosition(theSnapshot.myGeneratorPosition);
+        }
+        myGameOver = theSnapshot.myGameOver;
+        myPieceCount = theSnapshot.myPieceCount;
+        notifyChange(null, NO_ROWS, true);
     }
     
     /**
@@ -191,15 +511,20 @@ public class Board extends Observable {
      * Clear full lines.
      */
     public void down() {
-        if (!move(myCurrentPiece.down())) {
+        if (!move(myCurrentPiece.getX(), myCurrentPiece.getY() - 1,
+                  myCurrentPiece.getRotation())) {
             // the piece froze, so clear lines and update current piece
-            addPieceToBoardData(myFrozenBlocks, myCurrentPiece);
-            checkRows();
+            myChangeCount++;
+            myFrozenPiece.set(myCurrentPiece);
+            freezePiece(myCurrentPiece);
+            final int shape = myFrozenPiece.getShape();
+            final int y = myFrozenPiece.getY();
+            final int[] clearedRows = checkRows(y + PieceTable.minY(shape),
+                                                y + PieceTable.maxY(shape));
             if (!myGameOver) {
-                myCurrentPiece = nextMovablePiece(false);
+                nextMovablePiece(false);
             }
-            setChanged();
-            notifyObservers(new BoardData().getBoardData());
+            notifyChange(myFrozenPiece, clearedRows, false);
         }
     }
 
@@ -207,8 +532,9 @@ public class Board extends Observable {
      * Try to move the movable piece left.
      */
     public void left() {
-        if (myCurrentPiece != null) {
-            move(myCurrentPiece.left());
+        if (myCurrentPiece.hasPiece()) {
+            move(myCurrentPiece.getX() - 1, myCurrentPiece.getY(),
+                 myCurrentPiece.getRotation());
         }
     }
 
@@ -216,8 +542,9 @@ public class Board extends Observable {
      * Try to move the movable piece right.
      */
     public void right() {
-        if (myCurrentPiece != null) {
-            move(myCurrentPiece.right());
+        if (myCurrentPiece.hasPiece()) {
+            move(myCurrentPiece.getX() + 1, myCurrentPiece.getY(),
+                 myCurrentPiece.getRotation());
         }
     }
 
@@ -225,22 +552,8 @@ public class Board extends Observable {
      * Try to rotate the movable piece in the clockwise direction.
      */
     public void rotateCW() {
-        if (myCurrentPiece != null) {
-            if (myCurrentPiece.getTetrisPiece() == TetrisPiece.O) {
-                move(myCurrentPiece.rotateCW());
-            } else {
-                final MovableTetrisPiece cwPiece = myCurrentPiece.rotateCW();
-                final Point[] offsets = WallKick.getWallKicks(cwPiece.getTetrisPiece(),
-                                                    myCurrentPiece.getRotation(),
-                                                    cwPiece.getRotation());
-                for (final Point p : offsets) {
-                    final Point offsetLocation = cwPiece.getPosition().transform(p);
-                    final MovableTetrisPiece temp = cwPiece.setPosition(offsetLocation);
-                    if (move(temp)) {
-                        break;
-                    }
-                }
-            }
+        if (myCurrentPiece.hasPiece()) {
+            rotate(true);
         }
     }
     
@@ -248,51 +561,105 @@ public class Board extends Observable {
      * Try to rotate the movable piece in the counter-clockwise direction.
      */
     public void rotateCCW() {
-        if (myCurrentPiece != null) {
-            if (myCurrentPiece.getTetrisPiece() == TetrisPiece.O) {
-                move(myCurrentPiece.rotateCCW());
-            } else {
-                final MovableTetrisPiece ccwPiece = myCurrentPiece.rotateCCW();
-                final Point[] offsets = WallKick.getWallKicks(ccwPiece.getTetrisPiece(),
-                                                    myCurrentPiece.getRotation(),
-                                                    ccwPiece.getRotation());
-                for (final Point p : offsets) {
-                    final Point offsetLocation = ccwPiece.getPosition().transform(p);
-                    final MovableTetrisPiece temp = ccwPiece.setPosition(offsetLocation);
-                    if (move(temp)) {
-                        break;
-                    }
-                }
-            }
+        if (myCurrentPiece.hasPiece()) {
+            rotate(false);
         }
     }
 
     /**
      * Drop the piece until piece is set.
+     * The piece is moved straight to its landing row and frozen there,
+     * and listeners are notified once.
      */
     public void drop() {
-        if (!myGameOver) {
-            myDrop = true;
-            while (isPieceLegal(myCurrentPiece.down())) {
-                down();  // move down as far as possible
-            }
-            myDrop = false;
+        if (!myGameOver && myCurrentPiece.hasPiece()) {
+            myCurrentPiece.moveTo(myCurrentPiece.getX(), landingRow(),
+                                  myCurrentPiece.getRotation());
             down();  // move down one more time to freeze in place
         }
     }
     
 
 
-    @Override
-    public String toString() {
+    /**
+     * Applies a batch of commands, each the ordinal of a BoardAction, in order.
+     * 
+     * Listeners of moves are notified once for the whole batch, with a change
+     * from where the current piece was before the batch to where it is after
+     * it. Every piece that freezes during the batch is still reported when it
+     * freezes, followed by its cleared rows. The commands after the one that
+     * ends the game are ignored.
+     * 
+     * @param theCommands the BoardAction ordinals.
+     * @param theOffset the index of the first command.
+     * @param theLength the number of commands.
+     * @return the number of commands that moved or froze the current piece.
+     */
+    public int apply(final byte[] theCommands, final int theOffset, final int theLength) {
+        if (theOffset < 0 || theLength < 0 || theOffset > theCommands.length - theLength) {
+            throw new IndexOutOfBoundsException("Invalid command range: " + theOffset
+                                                + ", " + theLength);
+        }
+        for (int i = theOffset; i < theOffset + theLength; i++) {
+            if (theCommands[i] < 0 || theCommands[i] >= COMMANDS.length) {
+                throw new IllegalArgumentException("Invalid command: " + theCommands[i]);
+            }
+        }
+        int result = 0;
+        final boolean nested = myBatching;
+        myBatching = true;
+        try {
+            for (int i = theOffset; i < theOffset + theLength && !myGameOver; i++) {
+                final long changes = myChangeCount;
+                COMMANDS[theCommands[i]].applyTo(this);
+                if (myChangeCount != changes) {
+                    result++;
+                }
+            }
+        } finally {
+            myBatching = nested;
+            if (!nested && myBatchMoved) {
+                notifyChange(null, NO_ROWS, false);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Applies a batch of commands, each the ordinal of a BoardAction, in order.
+     * 
+     * @param theCommands the BoardAction ordinals.
+     * @return the number of commands that moved or froze the current piece.
+     * @see #apply(byte[], int, int)
+     */
+    public int apply(final byte[] theCommands) {
+        return apply(theCommands, 0, theCommands.length);
+    }
+
+    /**
+     * Returns a snapshot of the board data: the frozen blocks, the empty rows
+     * above the board where new pieces enter, and the current piece.
+     * Row 0 is the bottom row; empty cells are null.
+     * 
+     * Listeners are told only what changed through BoardChange objects and
+     * can use this method when they need the whole board.
+     * 
+     * @return a new copy of the board data.
+     */
+    public List<Block[]> getBoardData() {
         final List<Block[]> board = getBoard();
-        board.add(new Block[myWidth]);
-        board.add(new Block[myWidth]);
-        board.add(new Block[myWidth]);
-        board.add(new Block[myWidth]);
-        if (myCurrentPiece != null) {
+        for (int i = 0; i < SPAWN_ROWS; i++) {
+            board.add(new Block[myWidth]);
+        }
+        if (myCurrentPiece.hasPiece()) {
             addPieceToBoardData(board, myCurrentPiece);
         }
+        return board;
+    }
+
+    @Override
+    public String toString() {
+        final List<Block[]> board = getBoardData();
         final StringBuilder sb = new StringBuilder();
         for (int i = board.size() - 1; i >= 0; i--) {
             final Block[] row = board.get(i);
@@ -321,51 +688,268 @@ public class Board extends Observable {
         return sb.toString();
     }
 
+
+    // package-private queries and setters - used by engine tools and benchmarks
+
+    /**
+     * Returns the Zobrist keys of the cells; the key of cell (x, y) is at
+     * index y * width + x. The returned array must not be modified.
+     * 
+     * @return the cell keys.
+     */
+    long[] getCellKeys() {
+        return myCellKeys;
+    }
+
+    /**
+     * Returns the current piece. The returned cursor must not be modified.
+     * 
+     * @return the current piece.
+     */
+    PieceCursor getCurrentPiece() {
+        return myCurrentPiece;
+    }
+
+    /**
+     * Returns the occupancy masks of the frozen rows, bottom row first.
+     * The returned array must not be modified.
+     * 
+     * @return the row masks.
+     */
+    int[] getFrozenRows() {
+        return myRowMasks;
+    }
+
+    /**
+     * Returns the Block ordinals of the frozen cells, indexed like copyBlockTypes.
+     * The returned array must not be modified.
+     * 
+     * @return the block types.
+     */
+    byte[] getBlockTypes() {
+        return myBlockTypes;
+    }
+
+    /**
+     * Returns a copy of the occupancy masks of the frozen rows, bottom row first.
+     * 
+     * @return the row masks.
+     */
+    int[] copyFrozenRows() {
+        return myRowMasks.clone();
+    }
+
+    /**
+     * Returns a copy of the Block ordinals of the frozen cells; the type of
+     * cell (x, y) is at index y * width + x.
+     * 
+     * @return the block types.
+     */
+    byte[] copyBlockTypes() {
+        return myBlockTypes.clone();
+    }
+
+    /**
+     * Returns the piece that enters the board after the current piece.
+     * 
+     * @return the next piece, or null before the first game.
+     */
+    TetrisPiece getNextPiece() {
+        return myNextPiece;
+    }
+
+    /**
+     * Replaces the whole state of a game and notifies listeners of a reset.
+     * The piece generator is not changed.
+     * 
+     * @param theRowMasks occupancy masks of the frozen rows, bottom row first.
+     * @param theBlockTypes Block ordinals of the frozen cells, indexed like copyBlockTypes.
+     * @param theCurrent the current piece; may be empty.
+     * @param theNext the next piece.
+     * @param theGameOver the game over state.
+     * @param thePieceCount the piece count.
+     */
+    void restoreState(final int[] theRowMasks, final byte[] theBlockTypes,
+                      final PieceCursor theCurrent, final TetrisPiece theNext,
+                      final boolean theGameOver, final long thePieceCount) {
+        setFrozenRows(theRowMasks, Block.EMPTY);
+        System.arraycopy(theBlockTypes, 0, myBlockTypes, 0, myBlockTypes.length);
+        myCurrentPiece.set(theCurrent);
+        myNextPiece = theNext;
+        myGameOver = theGameOver;
+        myPieceCount = thePieceCount;
+        notifyChange(null, NO_ROWS, true);
+    }
+
+    /**
+     * Replaces the generator of the pieces without drawing a piece from it.
+     * The non random sequence is cleared. Listeners are not notified; the
+     * caller restores the rest of the game with restoreState.
+     * 
+     * @param theGenerator the PieceGenerator; it must not be shared with other boards.
+     */
+    void replacePieceGenerator(final PieceGenerator theGenerator) {
+        myGenerator = theGenerator;
+        myNonRandomPieces = new ArrayList<TetrisPiece>();
+        mySequenceIndex = 0;
+    }
+
+    /**
+     * Returns whether the pieces come from a non random sequence
+     * rather than from the piece generator.
+     * 
+     * @return true if a non random sequence is set.
+     */
+    boolean hasPieceSequence() {
+        return myNonRandomPieces != null && !myNonRandomPieces.isEmpty();
+    }
+
+    /**
+     * Returns the number of pieces that have entered this board since it was created.
+     * The count is not reset by newGame, so it identifies the current piece.
+     * 
+     * @return the piece count.
+     */
+    long getPieceCount() {
+        return myPieceCount;
+    }
+
+    /**
+     * Replaces the frozen blocks with blocks of a single type.
+     * Listeners are not notified.
+     * 
+     * @param theRowMasks occupancy masks starting with the bottom row; bit x of
+     *        theRowMasks[y] fills cell (x, y). Rows beyond the array are emptied.
+     * @param theBlock the Block type of the frozen blocks.
+     */
+    void setFrozenRows(final int[] theRowMasks, final Block theBlock) {
+        ownFrozenBlocks();
+        Arrays.fill(myRowMasks, 0);
+        Arrays.fill(myBlockTypes, (byte) Block.EMPTY.ordinal());
+        for (int y = 0; y < Math.min(theRowMasks.length, myHeight); y++) {
+            myRowMasks[y] = theRowMasks[y] & myFullRow;
+            int mask = myRowMasks[y];
+            while (mask != 0) {
+                myBlockTypes[y * myWidth + Integer.numberOfTrailingZeros(mask)] =
+                                (byte) theBlock.ordinal();
+                mask &= mask - 1;
+            }
+        }
+        myFrozenHash = Zobrist.hashRows(myCellKeys, myWidth, myRowMasks, 0, myHeight);
+        Arrays.fill(myColumnHeights, 0);
+        for (int y = 0; y < myHeight; y++) {
+            int mask = myRowMasks[y];
+            while (mask != 0) {
+                myColumnHeights[Integer.numberOfTrailingZeros(mask)] = y + 1;
+                mask &= mask - 1;
+            }
+        }
+    }
+
+    /**
+     * Places the current piece without checking that the placement is legal.
+     * Listeners are not notified.
+     * 
+     * @param thePiece the TetrisPiece.
+     * @param theX the x coordinate of the piece position.
+     * @param theY the y coordinate of the piece position.
+     * @param theRotation the Rotation of the piece.
+     */
+    void setCurrentPiece(final TetrisPiece thePiece, final int theX, final int theY,
+                         final Rotation theRotation) {
+        myCurrentPiece.set(thePiece, theX, theY, theRotation);
+    }
+
     
     // private helper methods
     
     /**
      * Helper function to check if the current piece can be shifted to the
-     * specified position.
+     * specified position and rotation. A legal move is committed in place.
      * 
-     * @param theMovedPiece the position to attempt to shift the current piece
+     * @param theX the x coordinate to attempt to shift the current piece to
+     * @param theY the y coordinate to attempt to shift the current piece to
+     * @param theRotation the Rotation ordinal to attempt to turn the current piece to
      * @return True if the move succeeded
      */
-    private boolean move(final MovableTetrisPiece theMovedPiece) {
+    private boolean move(final int theX, final int theY, final int theRotation) {
         boolean result = false;
-        if (isPieceLegal(theMovedPiece)) {
-            myCurrentPiece = theMovedPiece;
+        if (isPieceLegal(myCurrentPiece.getShape(theRotation), theX, theY)) {
+            myCurrentPiece.moveTo(theX, theY, theRotation);
             result = true;
-            if (!myDrop) {
-                setChanged();
+            myChangeCount++;
+            if (myBatching) {
+                myBatchMoved = true;
+            } else {
+                notifyChange(null, NO_ROWS, false);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Helper function to rotate the current piece, using the first wall kick
+     * offset of the rotation that is legal.
+     * 
+     * @param theClockwise true to rotate clockwise, false for counter-clockwise
+     */
+    private void rotate(final boolean theClockwise) {
+        final int shape = myCurrentPiece.getShape();
+        final int kick = PieceTable.findKick(myRowMasks, myWidth, shape,
+                                             myCurrentPiece.getX(), myCurrentPiece.getY(),
+                                             theClockwise);
+        if (kick >= 0) {
+            move(myCurrentPiece.getX() + PieceTable.kickX(shape, theClockwise, kick),
+                 myCurrentPiece.getY() + PieceTable.kickY(shape, theClockwise, kick),
+                 PieceTable.rotation(PieceTable.rotate(shape, theClockwise)));
+        }
+    }
+
+    /**
+     * Helper function to find the row where the current piece lands when dropped.
+     * 
+     * When every block of the piece is above the top of its column the landing
+     * row follows from the column heights alone. A piece tucked under an
+     * overhang is moved down row by row instead.
+     * 
+     * @return the y coordinate of the landing position.
+     */
+    private int landingRow() {
+        final int shape = myCurrentPiece.getShape();
+        final int x = myCurrentPiece.getX();
+        int result = myCurrentPiece.getY();
+        boolean above = true;
+        int landing = Integer.MIN_VALUE;
+        for (int i = 0; i < PieceTable.BLOCKS; i++) {
+            final int bottom = myColumnHeights[x + PieceTable.x(shape, i)]
+                               - PieceTable.y(shape, i);
+            above &= result >= bottom;
+            landing = Math.max(landing, bottom);
+        }
+        if (above) {
+            result = landing;
+        } else {
+            while (isPieceLegal(shape, x, result - 1)) {
+                result--;
             }
-            notifyObservers(new BoardData().getBoardData());
         }
         return result;
     }
 
     /**
-     * Helper function to test if the piece is in a legal state.
+     * Helper function to test if a shape placed at a board position is in a legal state.
      * 
      * Illegal states:
      * - points of the piece exceed the bounds of the board
      * - points of the piece collide with frozen blocks on the board
      * 
-     * @param thePiece MovableTetrisPiece to test.
-     * @return Returns true if the piece is in a legal state; false otherwise
+     * @param theShape the PieceTable shape index.
+     * @param theX the x coordinate of the shape's position.
+     * @param theY the y coordinate of the shape's position.
+     * @return Returns true if the shape is in a legal state; false otherwise
      */
-    private boolean isPieceLegal(final MovableTetrisPiece thePiece) {
-        boolean result = true;
-        
-        for (final Point p : thePiece.getBoardPoints()) {
-            if (p.x() < 0 || p.x() >= myWidth) {
-                result = false;
-            }
-            if (p.y() < 0) {
-                result = false;
-            }
-        }
-        return result && !collision(thePiece);      
+    private boolean isPieceLegal(final int theShape, final int theX, final int theY) {
+        return PieceTable.fits(myRowMasks, myWidth, theShape, theX, theY);
     }
 
     /**
@@ -374,43 +958,107 @@ public class Board extends Observable {
      * Allows a single data structure to represent the current piece
      * and the frozen blocks.
      * 
-     * @param theFrozenBlocks Board to set the piece on.
+     * @param theBoard Board to set the piece on.
      * @param thePiece Piece to set on the board.
      */
-    private void addPieceToBoardData(final List<Block[]> theFrozenBlocks,
-                                     final MovableTetrisPiece thePiece) {
-        for (final Point p : thePiece.getBoardPoints()) {
-            setPoint(theFrozenBlocks, p, thePiece.getTetrisPiece().getBlock());
+    private void addPieceToBoardData(final List<Block[]> theBoard,
+                                     final PieceCursor thePiece) {
+        final int shape = thePiece.getShape();
+        for (int i = 0; i < PieceTable.BLOCKS; i++) {
+            final int x = thePiece.getX() + PieceTable.x(shape, i);
+            final int y = thePiece.getY() + PieceTable.y(shape, i);
+            if (x >= 0 && x < myWidth && y >= 0 && y < theBoard.size()) {
+                theBoard.get(y)[x] = thePiece.getPiece().getBlock();
+            }
         }
     }
 
     /**
-     * Checks the board for complete rows.
+     * Freezes a movable Tetris piece into the frozen blocks.
+     * 
+     * @param thePiece Piece to freeze.
+     */
+    private void freezePiece(final PieceCursor thePiece) {
+        ownFrozenBlocks();
+        final int shape = thePiece.getShape();
+        final Block block = thePiece.getPiece().getBlock();
+        for (int i = 0; i < PieceTable.BLOCKS; i++) {
+            setPoint(thePiece.getX() + PieceTable.x(shape, i),
+                     thePiece.getY() + PieceTable.y(shape, i), block);
+        }
+    }
+
+    /**
+     * Checks rows of the board for completion.
+     * Only rows touched by the piece that just froze can have become complete,
+     * so only that range is checked; a row is complete when its mask is full.
+     * Complete rows are removed and the rows above them are shifted down.
+     * 
+     * @param theBottom the lowest row to check.
+     * @param theTop the highest row to check.
+     * @return the indices of the complete rows in increasing order.
      */
-    private void checkRows() {
-        final List<Integer> completeRows = new ArrayList<>();
-        for (final Block[] row : myFrozenBlocks) {
-            boolean complete = true;
-            for (final Block b : row) {
-                if (b == null) {
-                    complete = false;
-                    break;
+    private int[] checkRows(final int theBottom, final int theTop) {
+        final int bottom = Math.max(theBottom, 0);
+        final int top = Math.min(theTop, myHeight - 1);
+        int count = 0;
+        for (int y = bottom; y <= top; y++) {
+            if (myRowMasks[y] == myFullRow) {
+                count++;
+            }
+        }
+        int[] completeRows = NO_ROWS;
+        if (count > 0) {
+            completeRows = new int[count];
+            count = 0;
+            for (int y = bottom; y <= top; y++) {
+                if (myRowMasks[y] == myFullRow) {
+                    completeRows[count++] = y;
                 }
             }
-            if (complete) {
-                completeRows.add(myFrozenBlocks.indexOf(row));
-                setChanged();
+            removeRows(completeRows);
+        }
+        return completeRows;
+    }
+
+    /**
+     * Removes rows from the frozen blocks, shifting the rows above them down
+     * and filling the top of the board with empty rows.
+     * The rows between two removed rows are moved as one block.
+     * 
+     * @param theRows the indices of the rows to remove in increasing order.
+     */
+    private void removeRows(final int[] theRows) {
+        ownFrozenBlocks();
+        // rehash only the rows that move: remove their old keys, then add the new ones
+        myFrozenHash ^= Zobrist.hashRows(myCellKeys, myWidth, myRowMasks, theRows[0],
+                                         myHeight);
+        int target = theRows[0];
+        for (int i = 0; i < theRows.length; i++) {
+            int end = myHeight;
+            if (i + 1 < theRows.length) {
+                end = theRows[i + 1];
             }
+            final int start = theRows[i] + 1;
+            final int length = end - start;
+            System.arraycopy(myRowMasks, start, myRowMasks, target, length);
+            System.arraycopy(myBlockTypes, start * myWidth,
+                             myBlockTypes, target * myWidth, length * myWidth);
+            target += length;
         }
-        // loop through list backwards removing items by index
-        if (!completeRows.isEmpty()) {
-            for (int i = completeRows.size() - 1; i >= 0; i--) {
-                final Block[] row = myFrozenBlocks.get(completeRows.get(i));
-                myFrozenBlocks.remove(row);
-                myFrozenBlocks.add(new Block[myWidth]);
+        Arrays.fill(myRowMasks, target, myHeight, 0);
+        Arrays.fill(myBlockTypes, target * myWidth, myHeight * myWidth,
+                    (byte) Block.EMPTY.ordinal());
+        myFrozenHash ^= Zobrist.hashRows(myCellKeys, myWidth, myRowMasks, theRows[0], target);
+        // every removed row was full, so it was below the top of every column;
+        // a column whose top blocks were removed may end above a hole
+        for (int x = 0; x < myWidth; x++) {
+            int height = myColumnHeights[x] - theRows.length;
+            while (height > 0 && (myRowMasks[height - 1] & 1 << x) == 0) {
+                height--;
             }
+            myColumnHeights[x] = height;
         }
-        notifyObservers(completeRows.toArray(new Integer[completeRows.size()]));
     }
     
     /**
@@ -419,85 +1067,167 @@ public class Board extends Observable {
      * @return A new copy of the board.
      */
     private List<Block[]> getBoard() {
+        final Block[] blocks = Block.values();
         final List<Block[]> board = new ArrayList<Block[]>();
-        for (final Block[] row : myFrozenBlocks) {
-            board.add(row.clone());
+        for (int y = 0; y < myHeight; y++) {
+            final Block[] row = new Block[myWidth];
+            int mask = myRowMasks[y];
+            while (mask != 0) {
+                final int x = Integer.numberOfTrailingZeros(mask);
+                row[x] = blocks[myBlockTypes[y * myWidth + x]];
+                mask &= mask - 1;
+            }
+            board.add(row);
         }
         return board;
     }
 
     /**
-     * Determines if a point is on the game board.
+     * Notifies listeners of what changed since they were last notified: the
+     * PieceFrozenListeners and RowsClearedListeners if a piece froze, the
+     * PieceMovedListeners otherwise.
      * 
-     * @param theBoard Board to test.
-     * @param thePoint Point to test.
-     * @return True if the point is on the board otherwise false.
+     * @param theFrozen the piece that froze, or null.
+     * @param theClearedRows the indices of the cleared rows.
+     * @param theReset true if the whole board was reset.
      */
-    private boolean isPointOnBoard(final List<Block[]> theBoard, final Point thePoint) {
-        return thePoint.x() >= 0 && thePoint.x() < myWidth && thePoint.y() >= 0
-               && thePoint.y() < theBoard.size();
+    private void notifyChange(final PieceCursor theFrozen, final int[] theClearedRows,
+                              final boolean theReset) {
+        final PieceMovedListener[] moved = myMovedListeners;
+        final PieceFrozenListener[] frozen = myFrozenListeners;
+        BoardChange change = null;
+        if (theFrozen == null ? moved.length > 0 : frozen.length > 0) {
+            change = new BoardChange(myReportedPiece, theFrozen, myCurrentPiece,
+                                     theClearedRows, theReset);
+        }
+        myReportedPiece.set(myCurrentPiece);
+        myBatchMoved = false;
+        if (theFrozen == null) {
+            for (final PieceMovedListener listener : moved) {
+                listener.pieceMoved(change);
+            }
+        } else {
+            for (final PieceFrozenListener listener : frozen) {
+                listener.pieceFrozen(change);
+            }
+            if (theClearedRows.length > 0) {
+                for (final RowsClearedListener listener : myClearedListeners) {
+                    listener.rowsCleared(theClearedRows.length);
+                }
+            }
+        }
     }
 
     /**
-     * Sets a block at a board point.
+     * Returns a listener array with a listener added, unless it is already there.
      * 
-     * @param theBoard Board to set the point on.
-     * @param thePoint Board point.
-     * @param theBlock Block to set at board point.
+     * @param <T> the listener type.
+     * @param theListeners the listeners.
+     * @param theListener the listener to add.
+     * @return the new listener array.
      */
-    private void setPoint(final List<Block[]> theBoard,
-                          final Point thePoint,
-                          final Block theBlock) {
-        
-        if (isPointOnBoard(theBoard, thePoint)) { 
-            final Block[] row = theBoard.get(thePoint.y());
-            row[thePoint.x()] = theBlock;
-        } else if (!myGameOver) {
-            myGameOver = true;
-            setChanged();
-            notifyObservers(myGameOver);
+    private static <T> T[] addListener(final T[] theListeners, final T theListener) {
+        if (theListener == null) {
+            throw new IllegalArgumentException("The listener must not be null");
+        }
+        T[] result = theListeners;
+        if (indexOf(theListeners, theListener) < 0) {
+            result = Arrays.copyOf(theListeners, theListeners.length + 1);
+            result[theListeners.length] = theListener;
         }
+        return result;
     }
 
     /**
-     * Returns the block at a specific board point.
+     * Returns a listener array with a listener removed, if it is there.
      * 
-     * @param thePoint the specific Point to check
-     * @return the Block type at point or null if no block exists.
+     * @param <T> the listener type.
+     * @param theListeners the listeners.
+     * @param theListener the listener to remove.
+     * @return the new listener array.
      */
-    private Block getPoint(final Point thePoint) {
-        Block b = null;
-        if (isPointOnBoard(myFrozenBlocks, thePoint)) {
-            b = myFrozenBlocks.get(thePoint.y())[thePoint.x()];
+    private static <T> T[] removeListener(final T[] theListeners, final T theListener) {
+        final int index = indexOf(theListeners, theListener);
+        T[] result = theListeners;
+        if (index >= 0) {
+            result = Arrays.copyOf(theListeners, theListeners.length - 1);
+            System.arraycopy(theListeners, index + 1, result, index,
+                             theListeners.length - 1 - index);
         }
-        return b;
+        return result;
     }
 
     /**
-     * Helper function to determine of a movable block has collided with set
-     * blocks.
+     * Returns the index of a listener.
      * 
-     * @param theTest movable TetrisPiece to test for collision.
-     * @return Returns true if any of the blocks has collided with a set board
-     *         block.
+     * @param theListeners the listeners.
+     * @param theListener the listener.
+     * @return the index, or -1 if the listener is not there.
      */
-    private boolean collision(final MovableTetrisPiece theTest) {
-        boolean res = false;
-        for (final Point p : theTest.getBoardPoints()) {
-            if (getPoint(p) != null) {
-                res = true;
+    private static int indexOf(final Object[] theListeners, final Object theListener) {
+        int result = -1;
+        for (int i = 0; i < theListeners.length && result < 0; i++) {
+            if (theListeners[i] == theListener) {
+                result = i;
             }
         }
-        return res;
+        return result;
+    }
+
+    /**
+     * Determines if a point is on the game board.
+     * 
+     * @param theX the x coordinate to test.
+     * @param theY the y coordinate to test.
+     * @return True if the point is on the board otherwise false.
+     */
+    private boolean isPointOnBoard(final int theX, final int theY) {
+        return theX >= 0 && theX < myWidth && theY >= 0 && theY < myHeight;
+    }
+
+    /**
+     * Copies the frozen block arrays if they are shared with a Snapshot,
+     * so they can be changed.
+     */
+    private void ownFrozenBlocks() {
+        if (myFrozenShared) {
+            myRowMasks = myRowMasks.clone();
+            myBlockTypes = myBlockTypes.clone();
+            myColumnHeights = myColumnHeights.clone();
+            myFrozenShared = false;
+        }
     }
 
     /**
-     * Gets the next MovableTetrisPiece.
+     * Sets a frozen block at a board point.
+     * Setting a block outside the board ends the game.
+     * 
+     * @param theX the x coordinate of the board point.
+     * @param theY the y coordinate of the board point.
+     * @param theBlock Block to set at board point.
+     */
+    private void setPoint(final int theX, final int theY, final Block theBlock) {
+        if (isPointOnBoard(theX, theY)) {
+            if ((myRowMasks[theY] & 1 << theX) == 0) {
+                myFrozenHash ^= myCellKeys[theY * myWidth + theX];
+            }
+            myRowMasks[theY] |= 1 << theX;
+            myColumnHeights[theX] = Math.max(myColumnHeights[theX], theY + 1);
+            myBlockTypes[theY * myWidth + theX] = (byte) theBlock.ordinal();
+        } else if (!myGameOver) {
+            myGameOver = true;
+            for (final GameOverListener listener : myGameOverListeners) {
+                listener.gameOver();
+            }
+        }
+    }
+
+    /**
+     * Places the next piece on the board as the current movable piece.
      * 
      * @param theRestart Restart the non random cycle.
-     * @return A new MovableTetrisPiece.
      */
-    private MovableTetrisPiece nextMovablePiece(final boolean theRestart) {
+    private void nextMovablePiece(final boolean theRestart) {
         
         if (myNextPiece == null || theRestart) {
             prepareNextMovablePiece();
@@ -511,9 +1241,9 @@ public class Board extends Observable {
         }
         
         prepareNextMovablePiece();
-        return new MovableTetrisPiece(
-                       next,
-                       new Point((myWidth - myNextPiece.getWidth()) / 2, startY));
+        myCurrentPiece.set(next, (myWidth - myNextPiece.getWidth()) / 2, startY,
+                           Rotation.NONE);
+        myPieceCount++;
     }
     
     /**
@@ -523,57 +1253,103 @@ public class Board extends Observable {
         
         final boolean share = myNextPiece != null;
         if (myNonRandomPieces == null || myNonRandomPieces.isEmpty()) {
-            myNextPiece = TetrisPiece.getRandomPiece();
+            myNextPiece = myGenerator.next();
         } else {
             mySequenceIndex %= myNonRandomPieces.size();
             myNextPiece = myNonRandomPieces.get(mySequenceIndex++);
         }
         if (share && !myGameOver) {
-            setChanged();
-            notifyObservers(myNextPiece);
+            for (final NextPieceListener listener : myNextPieceListeners) {
+                listener.nextPiece(myNextPiece);
+            }
         }
-    }    
-
-    
-    // Inner classes
+    }
 
     /**
-     * A class to describe the board data to registered Observers.
-     * The board data includes the current piece and the frozen blocks.
+     * The state of a game on a Board, taken by Board.snapshot and returned to
+     * by Board.restore. A Snapshot is immutable; it shares its frozen blocks
+     * with the board and with other snapshots until the board changes them.
      */
-    protected final class BoardData {
-        
+    public static final class Snapshot {
+
         /**
-         * The board data to pass to observers.
+         * Width of the board.
          */
-        private final List<Block[]> myBoardData;
+        private final int myWidth;
 
         /**
-         * Constructor of the Board Data object.
+         * Height of the board.
          */
-        protected BoardData() {
-            myBoardData = getBoard();
-            myBoardData.add(new Block[myWidth]);
-            myBoardData.add(new Block[myWidth]);
-            myBoardData.add(new Block[myWidth]);
-            myBoardData.add(new Block[myWidth]);
-            if (myCurrentPiece != null) {
-                addPieceToBoardData(myBoardData, myCurrentPiece);
-            }
-        }
+        private final int myHeight;
+
+        /**
+         * Occupancy of the frozen blocks, shared and never changed.
+         */
+        private final int[] myRowMasks;
+
+        /**
+         * Block types of the frozen blocks, shared and never changed.
+         */
+        private final byte[] myBlockTypes;
+
+        /**
+         * Column heights, shared and never changed.
+         */
+        private final int[] myColumnHeights;
 
         /**
-         * Copy and return the board's data.
+         * Zobrist hash of the frozen blocks.
+         */
+        private final long myFrozenHash;
+
+        /**
+         * The current piece.
+         */
+        private final PieceCursor myCurrentPiece = new PieceCursor();
+
+        /**
+         * The next piece.
+         */
+        private final TetrisPiece myNextPiece;
+
+        /**
+         * The index in the non random piece sequence.
+         */
+        private final int mySequenceIndex;
+
+        /**
+         * The position of the piece generator.
+         */
+        private final long myGeneratorPosition;
+
+        /**
+         * The game over state.
+         */
+        private final boolean myGameOver;
+
+        /**
+         * The piece count.
+         */
+        private final long myPieceCount;
+
+        /**
+         * Takes a snapshot of a board whose frozen blocks are marked shared.
          * 
-         * @return Copy of the Board Data.
+         * @param theBoard the board.
          */
-        protected List<Block[]> getBoardData() {
-            final List<Block[]> board = new ArrayList<Block[]>();
-            for (final Block[] row : myBoardData) {
-                board.add(row.clone());
-            }
-            return board;
+        private Snapshot(final Board theBoard) {
+            myWidth = theBoard.myWidth;
+            myHeight = theBoard.myHeight;
+            myRowMasks = theBoard.myRowMasks;
+            myBlockTypes = theBoard.myBlockTypes;
+            myColumnHeights = theBoard.myColumnHeights;
+            myFrozenHash = theBoard.myFrozenHash;
+            myCurrentPiece.set(theBoard.myCurrentPiece);
+            myNextPiece = theBoard.myNextPiece;
+            mySequenceIndex = theBoard.mySequenceIndex;
+            myGeneratorPosition = theBoard.myGenerator.getPosition();
+            myGameOver = theBoard.myGameOver;
+            myPieceCount = theBoard.myPieceCount;
         }
-        
-    } // end inner class BoardData
+    }
 }
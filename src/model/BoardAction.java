@@ -0,0 +1,61 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * The actions a player or a program can apply to a Board.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public enum BoardAction {
+
+    /** Move the current piece left. */
+    LEFT,
+    /** Move the current piece right. */
+    RIGHT,
+    /** Rotate the current piece clockwise. */
+    ROTATE_CW,
+    /** Rotate the current piece counter-clockwise. */
+    ROTATE_CCW,
+    /** Move the current piece down, freezing it if it cannot move. */
+    DOWN,
+    /** Drop the current piece until it freezes. */
+    DROP,
+    /** Advance the board by one step. */
+    STEP;
+
+    /**
+     * Applies this action to a Board.
+     *
+     * @param theBoard the Board to apply the action to.
+     */
+    public void applyTo(final Board theBoard) {
+        switch (this) {
+            case LEFT:
+                theBoard.left();
+                break;
+            case RIGHT:
+                theBoard.right();
+                break;
+            case ROTATE_CW:
+                theBoard.rotateCW();
+                break;
+            case ROTATE_CCW:
+                theBoard.rotateCCW();
+                break;
+            case DOWN:
+                theBoard.down();
+                break;
+            case DROP:
+                theBoard.drop();
+                break;
+            default:
+                theBoard.step();
+        }
+    }
+}
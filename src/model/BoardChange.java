@@ -0,0 +1,272 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * Describes what changed on a Board since its listeners were last notified.
+ *
+ * A change reports the cells the movable piece occupied before, the cells it
+ * occupies now, the cells of a piece that froze, and the rows that were cleared.
+ * Listeners that need the whole board can ask the Board for a copy with
+ * Board.getBoardData().
+ *
+ * A BoardChange is immutable. It stores placements as PieceTable shapes and
+ * positions and only creates Points when they are requested.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class BoardChange {
+
+    /**
+     * The TetrisPiece values, cached to avoid cloning the values array.
+     */
+    private static final TetrisPiece[] PIECES = TetrisPiece.values();
+
+    /**
+     * Shape index marking a missing placement.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Shape of the movable piece before the change, or NONE.
+     */
+    private final int myPreviousShape;
+
+    /**
+     * X coordinate of the movable piece before the change.
+     */
+    private final int myPreviousX;
+
+    /**
+     * Y coordinate of the movable piece before the change.
+     */
+    private final int myPreviousY;
+
+    /**
+     * Shape of the piece that froze, or NONE.
+     */
+    private final int myFrozenShape;
+
+    /**
+     * X coordinate of the piece that froze.
+     */
+    private final int myFrozenX;
+
+    /**
+     * Y coordinate of the piece that froze.
+     */
+    private final int myFrozenY;
+
+    /**
+     * Shape of the movable piece after the change, or NONE.
+     */
+    private final int myCurrentShape;
+
+    /**
+     * X coordinate of the movable piece after the change.
+     */
+    private final int myCurrentX;
+
+    /**
+     * Y coordinate of the movable piece after the change.
+     */
+    private final int myCurrentY;
+
+    /**
+     * The indices of the cleared rows, in increasing order.
+     */
+    private final int[] myClearedRows;
+
+    /**
+     * Whether the whole board was reset.
+     */
+    private final boolean myReset;
+
+    /**
+     * Constructs a BoardChange.
+     *
+     * @param thePrevious the movable piece before the change, or null.
+     * @param theFrozen the piece that froze, or null.
+     * @param theCurrent the movable piece after the change, or null.
+     * @param theClearedRows the indices of the cleared rows, in increasing order.
+     * @param theReset true if the whole board was reset.
+     */
+    BoardChange(final PieceCursor thePrevious, final PieceCursor theFrozen,
+                final PieceCursor theCurrent, final int[] theClearedRows,
+                final boolean theReset) {
+        myPreviousShape = shapeOf(thePrevious);
+        myPreviousX = xOf(thePrevious);
+        myPreviousY = yOf(thePrevious);
+        myFrozenShape = shapeOf(theFrozen);
+        myFrozenX = xOf(theFrozen);
+        myFrozenY = yOf(theFrozen);
+        myCurrentShape = shapeOf(theCurrent);
+        myCurrentX = xOf(theCurrent);
+        myCurrentY = yOf(theCurrent);
+        myClearedRows = theClearedRows;
+        myReset = theReset;
+    }
+
+    /**
+     * Returns the board cells the movable piece occupied before the change.
+     *
+     * @return the previous cells; empty if there was no movable piece.
+     */
+    public Point[] getPreviousCells() {
+        return cells(myPreviousShape, myPreviousX, myPreviousY);
+    }
+
+    /**
+     * Returns the board cells the movable piece occupies after the change.
+     *
+     * @return the current cells; empty if there is no movable piece.
+     */
+    public Point[] getCurrentCells() {
+        return cells(myCurrentShape, myCurrentX, myCurrentY);
+    }
+
+    /**
+     * Returns the Block type of the movable piece after the change.
+     *
+     * @return the current Block type, or null if there is no movable piece.
+     */
+    public Block getCurrentBlock() {
+        return blockOf(myCurrentShape);
+    }
+
+    /**
+     * Returns the board cells of the piece that froze, before any rows were cleared.
+     *
+     * @return the frozen cells; empty if no piece froze.
+     */
+    public Point[] getFrozenCells() {
+        return cells(myFrozenShape, myFrozenX, myFrozenY);
+    }
+
+    /**
+     * Returns the Block type of the piece that froze.
+     *
+     * @return the frozen Block type, or null if no piece froze.
+     */
+    public Block getFrozenBlock() {
+        return blockOf(myFrozenShape);
+    }
+
+    /**
+     * Returns whether a piece froze in this change.
+     *
+     * @return true if a piece froze.
+     */
+    public boolean isFrozen() {
+        return myFrozenShape != NONE;
+    }
+
+    /**
+     * Returns the indices of the rows cleared by this change.
+     *
+     * @return the cleared row indices in increasing order; empty if none.
+     */
+    public int[] getClearedRows() {
+        return myClearedRows.clone();
+    }
+
+    /**
+     * Returns the number of rows cleared by this change.
+     *
+     * @return the number of cleared rows.
+     */
+    public int getClearedRowCount() {
+        return myClearedRows.length;
+    }
+
+    /**
+     * Returns whether the whole board was reset, as when a new game starts.
+     * Listeners keeping their own copy of the board should fetch a new copy.
+     *
+     * @return true if the board was reset.
+     */
+    public boolean isReset() {
+        return myReset;
+    }
+
+    /**
+     * Returns the shape of a cursor.
+     *
+     * @param thePiece the cursor, or null.
+     * @return the shape index, or NONE if there is no piece.
+     */
+    private static int shapeOf(final PieceCursor thePiece) {
+        int result = NONE;
+        if (thePiece != null && thePiece.hasPiece()) {
+            result = thePiece.getShape();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the x coordinate of a cursor.
+     *
+     * @param thePiece the cursor, or null.
+     * @return the x coordinate, or 0 if there is no cursor.
+     */
+    private static int xOf(final PieceCursor thePiece) {
+        int result = 0;
+        if (thePiece != null) {
+            result = thePiece.getX();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the y coordinate of a cursor.
+     *
+     * @param thePiece the cursor, or null.
+     * @return the y coordinate, or 0 if there is no cursor.
+     */
+    private static int yOf(final PieceCursor thePiece) {
+        int result = 0;
+        if (thePiece != null) {
+            result = thePiece.getY();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the board cells of a placed shape.
+     *
+     * @param theShape the shape index, or NONE.
+     * @param theX the x coordinate of the placement.
+     * @param theY the y coordinate of the placement.
+     * @return the board cells; empty for NONE.
+     */
+    private static Point[] cells(final int theShape, final int theX, final int theY) {
+        Point[] result = new Point[0];
+        if (theShape != NONE) {
+            result = new Point[PieceTable.BLOCKS];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = new Point(theX + PieceTable.x(theShape, i),
+                                      theY + PieceTable.y(theShape, i));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the Block type of a shape.
+     *
+     * @param theShape the shape index, or NONE.
+     * @return the Block type, or null for NONE.
+     */
+    private static Block blockOf(final int theShape) {
+        Block result = null;
+        if (theShape != NONE) {
+            result = PIECES[theShape / PieceTable.ROTATIONS].getBlock();
+        }
+        return result;
+    }
+}
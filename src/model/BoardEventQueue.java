@@ -0,0 +1,544 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Delivers the events of a Board to listeners on a thread of their own.
+ *
+ * The queue subscribes to the Board for the event types its listeners want
+ * and copies each event into a preallocated ring buffer, so the thread
+ * changing the Board never calls the listeners and the queue allocates
+ * nothing per event. A consumer thread drains the ring in batches of up to a
+ * maximum size, calls the listeners in event order and then runs an optional
+ * batch task, for example to publish a frame or flush a recording once per
+ * batch rather than once per event.
+ *
+ * When a slow consumer lets the ring fill up, the Overflow policy decides:
+ * DROP discards new events and counts them, so the Board's thread is never
+ * held up; BLOCK makes the Board's thread wait for space, so no event is lost.
+ *
+ * Listeners run on the consumer thread and must not read the Board, which
+ * may already have changed; they get everything they need from the events.
+ * BoardChange objects are immutable and safe to use there. The queue is
+ * started and closed on the thread that changes the Board.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class BoardEventQueue implements Closeable {
+
+    /**
+     * What to do with an event when the ring is full.
+     */
+    public enum Overflow {
+
+        /**
+         * Discard the event and count it.
+         */
+        DROP,
+
+        /**
+         * Wait until the consumer has made room.
+         */
+        BLOCK
+    }
+
+    /**
+     * Event type of a PieceMovedListener event.
+     */
+    private static final byte MOVED = 0;
+
+    /**
+     * Event type of a PieceFrozenListener event.
+     */
+    private static final byte FROZEN = 1;
+
+    /**
+     * Event type of a RowsClearedListener event.
+     */
+    private static final byte CLEARED = 2;
+
+    /**
+     * Event type of a NextPieceListener event.
+     */
+    private static final byte NEXT_PIECE = 3;
+
+    /**
+     * Event type of a GameOverListener event.
+     */
+    private static final byte GAME_OVER = 4;
+
+    /**
+     * The largest ring capacity.
+     */
+    private static final int MAX_CAPACITY = 1 << (Integer.SIZE - 2);
+
+    /**
+     * The Board whose events are queued.
+     */
+    private final Board myBoard;
+
+    /**
+     * What to do with an event when the ring is full.
+     */
+    private final Overflow myOverflow;
+
+    /**
+     * The most events delivered before the batch task runs.
+     */
+    private final int myMaxBatch;
+
+    /**
+     * Ring capacity minus one; the capacity is a power of two.
+     */
+    private final int myMask;
+
+    /**
+     * Event types of the ring slots.
+     */
+    private final byte[] myTypes;
+
+    /**
+     * BoardChanges of the ring slots, or null.
+     */
+    private final BoardChange[] myChanges;
+
+    /**
+     * Next pieces of the ring slots, or null.
+     */
+    private final TetrisPiece[] myPieces;
+
+    /**
+     * Cleared row counts of the ring slots.
+     */
+    private final int[] myCounts;
+
+    /**
+     * Sequence number of the next event to write.
+     */
+    private final AtomicLong myHead = new AtomicLong();
+
+    /**
+     * Sequence number of the next event to deliver.
+     */
+    private final AtomicLong myTail = new AtomicLong();
+
+    /**
+     * The tail as the producer last read it; the ring has room up to it.
+     */
+    private long myCachedTail;
+
+    /**
+     * The number of discarded events.
+     */
+    private final AtomicLong myDropped = new AtomicLong();
+
+    /**
+     * Copies the Board's events into the ring.
+     */
+    private final Producer myProducer = new Producer();
+
+    /**
+     * The PieceMovedListeners, called on the consumer thread.
+     */
+    private PieceMovedListener[] myMovedListeners = new PieceMovedListener[0];
+
+    /**
+     * The PieceFrozenListeners, called on the consumer thread.
+     */
+    private PieceFrozenListener[] myFrozenListeners = new PieceFrozenListener[0];
+
+    /**
+     * The RowsClearedListeners, called on the consumer thread.
+     */
+    private RowsClearedListener[] myClearedListeners = new RowsClearedListener[0];
+
+    /**
+     * The NextPieceListeners, called on the consumer thread.
+     */
+    private NextPieceListener[] myNextPieceListeners = new NextPieceListener[0];
+
+    /**
+     * The GameOverListeners, called on the consumer thread.
+     */
+    private GameOverListener[] myGameOverListeners = new GameOverListener[0];
+
+    /**
+     * Run on the consumer thread after each batch, or null.
+     */
+    private Runnable myBatchTask;
+
+    /**
+     * The consumer thread, or null before start.
+     */
+    private Thread myThread;
+
+    /**
+     * Whether the consumer is parked or about to park waiting for events.
+     */
+    private volatile boolean myWaiting;
+
+    /**
+     * Whether the queue is closed or its consumer has stopped.
+     */
+    private volatile boolean myClosed;
+
+    /**
+     * Constructs a queue for the events of a Board.
+     *
+     * @param theBoard the Board.
+     * @param theCapacity the minimum number of queued events; rounded up to a power of two.
+     * @param theOverflow what to do with an event when the ring is full.
+     * @param theMaxBatch the most events delivered before the batch task runs.
+     */
+    public BoardEventQueue(final Board theBoard, final int theCapacity,
+                           final Overflow theOverflow, final int theMaxBatch) {
+        if (theCapacity < 1 || theCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Invalid capacity: " + theCapacity);
+        }
+        if (theMaxBatch < 1) {
+            throw new IllegalArgumentException("Invalid batch size: " + theMaxBatch);
+        }
+        if (theBoard == null || theOverflow == null) {
+            throw new IllegalArgumentException("The board and overflow policy are required");
+        }
+        final int capacity = Integer.highestOneBit(theCapacity * 2 - 1);
+        myBoard = theBoard;
+        myOverflow = theOverflow;
+        myMaxBatch = theMaxBatch;
+        myMask = capacity - 1;
+        myTypes = new byte[capacity];
+        myChanges = new BoardChange[capacity];
+        myPieces = new TetrisPiece[capacity];
+        myCounts = new int[capacity];
+    }
+
+    /**
+     * Adds a listener for moves of the current piece, called on the consumer thread.
+     *
+     * @param theListener the listener.
+     */
+    public void addPieceMovedListener(final PieceMovedListener theListener) {
+        checkNotStarted(theListener);
+        myMovedListeners = append(myMovedListeners, theListener);
+    }
+
+    /**
+     * Adds a listener for frozen pieces, called on the consumer thread.
+     *
+     * @param theListener the listener.
+     */
+    public void addPieceFrozenListener(final PieceFrozenListener theListener) {
+        checkNotStarted(theListener);
+        myFrozenListeners = append(myFrozenListeners, theListener);
+    }
+
+    /**
+     * Adds a listener for cleared rows, called on the consumer thread.
+     *
+     * @param theListener the listener.
+     */
+    public void addRowsClearedListener(final RowsClearedListener theListener) {
+        checkNotStarted(theListener);
+        myClearedListeners = append(myClearedListeners, theListener);
+    }
+
+    /**
+     * Adds a listener for changes of the next piece, called on the consumer thread.
+     *
+     * @param theListener the listener.
+     */
+    public void addNextPieceListener(final NextPieceListener theListener) {
+        checkNotStarted(theListener);
+        myNextPieceListeners = append(myNextPieceListeners, theListener);
+    }
+
+    /**
+     * Adds a listener for the end of the game, called on the consumer thread.
+     *
+     * @param theListener the listener.
+     */
+    public void addGameOverListener(final GameOverListener theListener) {
+        checkNotStarted(theListener);
+        myGameOverListeners = append(myGameOverListeners, theListener);
+    }
+
+    /**
+     * Sets a task run on the consumer thread after each batch of events.
+     *
+     * @param theTask the task, or null.
+     */
+    public void setBatchTask(final Runnable theTask) {
+        checkNotStarted(this);
+        myBatchTask = theTask;
+    }
+
+    /**
+     * Subscribes to the Board for the event types that have listeners and
+     * starts the consumer thread.
+     */
+    public void start() {
+        checkNotStarted(this);
+        if (myMovedListeners.length > 0) {
+            myBoard.addPieceMovedListener(myProducer);
+        }
+        if (myFrozenListeners.length > 0) {
+            myBoard.addPieceFrozenListener(myProducer);
+        }
+        if (myClearedListeners.length > 0) {
+            myBoard.addRowsClearedListener(myProducer);
+        }
+        if (myNextPieceListeners.length > 0) {
+            myBoard.addNextPieceListener(myProducer);
+        }
+        if (myGameOverListeners.length > 0) {
+            myBoard.addGameOverListener(myProducer);
+        }
+        myThread = new Thread(new Consumer(), "Board event queue");
+        myThread.setDaemon(true);
+        myThread.start();
+    }
+
+    /**
+     * Unsubscribes from the Board, delivers the queued events and stops the
+     * consumer thread.
+     */
+    @Override
+    public void close() {
+        myBoard.removePieceMovedListener(myProducer);
+        myBoard.removePieceFrozenListener(myProducer);
+        myBoard.removeRowsClearedListener(myProducer);
+        myBoard.removeNextPieceListener(myProducer);
+        myBoard.removeGameOverListener(myProducer);
+        myClosed = true;
+        final Thread thread = myThread;
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of events waiting to be delivered.
+     *
+     * @return the number of queued events.
+     */
+    public int getQueued() {
+        return (int) (myHead.get() - myTail.get());
+    }
+
+    /**
+     * Returns the number of events discarded because the ring was full.
+     *
+     * @return the number of dropped events.
+     */
+    public long getDropped() {
+        return myDropped.get();
+    }
+
+    /**
+     * Returns the ring capacity.
+     *
+     * @return the most events that can be queued.
+     */
+    public int getCapacity() {
+        return myMask + 1;
+    }
+
+    /**
+     * Checks that a listener is given and the queue has not been started.
+     *
+     * @param theListener the listener.
+     */
+    private void checkNotStarted(final Object theListener) {
+        if (theListener == null) {
+            throw new IllegalArgumentException("The listener must not be null");
+        }
+        if (myThread != null) {
+            throw new IllegalStateException("The queue has already been started");
+        }
+    }
+
+    /**
+     * Returns a listener array with a listener appended.
+     *
+     * @param <T> the listener type.
+     * @param theListeners the listeners.
+     * @param theListener the listener.
+     * @return the new listener array.
+     */
+    private static <T> T[] append(final T[] theListeners, final T theListener) {
+        final T[] result = Arrays.copyOf(theListeners, theListeners.length + 1);
+        result[theListeners.length] = theListener;
+        return result;
+    }
+
+    /**
+     * Writes an event into the ring. Called on the Board's thread.
+     *
+     * @param theType the event type.
+     * @param theChange the BoardChange, or null.
+     * @param thePiece the next piece, or null.
+     * @param theCount the number of cleared rows.
+     */
+    private void offer(final byte theType, final BoardChange theChange,
+                       final TetrisPiece thePiece, final int theCount) {
+        final long head = myHead.get();
+        final int capacity = myMask + 1;
+        boolean room = head - myCachedTail < capacity;
+        if (!room) {
+            myCachedTail = myTail.get();
+            room = head - myCachedTail < capacity;
+            while (!room && myOverflow == Overflow.BLOCK && !myClosed) {
+                LockSupport.unpark(myThread);
+                Thread.yield();
+                myCachedTail = myTail.get();
+                room = head - myCachedTail < capacity;
+            }
+        }
+        if (room) {
+            final int slot = (int) head & myMask;
+            myTypes[slot] = theType;
+            myChanges[slot] = theChange;
+            myPieces[slot] = thePiece;
+            myCounts[slot] = theCount;
+            // a volatile write, ordered before the read of myWaiting
+            myHead.set(head + 1);
+            if (myWaiting) {
+                LockSupport.unpark(myThread);
+            }
+        } else {
+            myDropped.incrementAndGet();
+        }
+    }
+
+    /**
+     * Delivers the event in a ring slot. Called on the consumer thread.
+     *
+     * @param theSlot the slot.
+     */
+    private void deliver(final int theSlot) {
+        final BoardChange change = myChanges[theSlot];
+        myChanges[theSlot] = null;
+        final TetrisPiece piece = myPieces[theSlot];
+        myPieces[theSlot] = null;
+        switch (myTypes[theSlot]) {
+            case MOVED:
+                for (final PieceMovedListener listener : myMovedListeners) {
+                    listener.pieceMoved(change);
+                }
+                break;
+            case FROZEN:
+                for (final PieceFrozenListener listener : myFrozenListeners) {
+                    listener.pieceFrozen(change);
+                }
+                break;
+            case CLEARED:
+                for (final RowsClearedListener listener : myClearedListeners) {
+                    listener.rowsCleared(myCounts[theSlot]);
+                }
+                break;
+            case NEXT_PIECE:
+                for (final NextPieceListener listener : myNextPieceListeners) {
+                    listener.nextPiece(piece);
+                }
+                break;
+            default:
+                for (final GameOverListener listener : myGameOverListeners) {
+                    listener.gameOver();
+                }
+                break;
+        }
+    }
+
+    /**
+     * Drains the ring on the consumer thread until the queue is closed and empty.
+     */
+    private class Consumer implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                boolean running = true;
+                while (running) {
+                    final long tail = myTail.get();
+                    final long head = myHead.get();
+                    if (head == tail) {
+                        running = !myClosed;
+                        if (running) {
+                            myWaiting = true;
+                            if (myHead.get() == tail && !myClosed) {
+                                LockSupport.park(this);
+                            }
+                            myWaiting = false;
+                        }
+                    } else {
+                        final long end = Math.min(head, tail + myMaxBatch);
+                        for (long sequence = tail; sequence < end; sequence++) {
+                            deliver((int) sequence & myMask);
+                        }
+                        myTail.set(end);
+                        if (myBatchTask != null) {
+                            myBatchTask.run();
+                        }
+                    }
+                }
+            } finally {
+                // a failed listener must not leave a blocking producer waiting forever
+                myClosed = true;
+            }
+        }
+    }
+
+    /**
+     * Copies the Board's events into the ring on the Board's thread.
+     */
+    private class Producer implements PieceMovedListener, PieceFrozenListener,
+                                      RowsClearedListener, NextPieceListener,
+                                      GameOverListener {
+
+        @Override
+        public void pieceMoved(final BoardChange theChange) {
+            offer(MOVED, theChange, null, 0);
+        }
+
+        @Override
+        public void pieceFrozen(final BoardChange theChange) {
+            offer(FROZEN, theChange, null, 0);
+        }
+
+        @Override
+        public void rowsCleared(final int theCount) {
+            offer(CLEARED, null, null, theCount);
+        }
+
+        @Override
+        public void nextPiece(final TetrisPiece thePiece) {
+            offer(NEXT_PIECE, null, thePiece, 0);
+        }
+
+        @Override
+        public void gameOver() {
+            offer(GAME_OVER, null, null, 0);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Constants and encodings of the bit packed board state format.
+ *
+ * A state stream starts with a header: the magic number, the format version
+ * and the board width and height as varints, at most MAX_HEIGHT rows and
+ * MAX_CELLS cells. Every state in the stream is of a board of that size.
+ * The header is followed by the states back to back, with no separators,
+ * until the end of the stream. A state holds:
+ * - a flags byte: GAME_OVER, HAS_CURRENT, HAS_NEXT, and the kind of the
+ *   PieceGenerator (ReplayFormat.UNIFORM or BAG) above GENERATOR_SHIFT.
+ * - the generator seed as a long, then its position and the piece count as varints.
+ * - with HAS_CURRENT, the current piece: a byte holding the TetrisPiece
+ *   ordinal above ROTATION_BITS and the rotation below, then the x and y
+ *   coordinates as zigzag varints.
+ * - with HAS_NEXT, the TetrisPiece ordinal of the next piece as a byte.
+ * - the frozen cells as one bit stream, least significant bit first: one
+ *   occupancy bit per cell, bottom row first and x ascending within a row,
+ *   followed by TYPE_BITS per occupied cell in the same order holding the
+ *   Block ordinal minus one. The stream is padded with zero bits to a byte.
+ *
+ * A 10 x 20 board thus takes 200 bits of occupancy and 3 bits per frozen
+ * block, and a whole state of a game in progress takes 40 to 100 bytes.
+ * Varints are those of ReplayFormat.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+final class BoardStateFormat {
+
+    /**
+     * The magic number starting every state stream: "TBST".
+     */
+    static final int MAGIC = 0x54425354;
+
+    /**
+     * The version of the format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The maximum length in bytes of the header.
+     */
+    static final int MAX_HEADER_LENGTH = Integer.BYTES + 1 + 2 * 5;
+
+    /**
+     * The largest board height a stream may declare, so that a crafted header
+     * cannot make a reader allocate unbounded buffers.
+     */
+    static final int MAX_HEIGHT = 4096;
+
+    /**
+     * The largest number of board cells a stream may declare.
+     */
+    static final int MAX_CELLS = 1 << 16;
+
+    /**
+     * Flag of a state whose game is over.
+     */
+    static final int GAME_OVER = 1;
+
+    /**
+     * Flag of a state with a current piece.
+     */
+    static final int HAS_CURRENT = 2;
+
+    /**
+     * Flag of a state with a next piece.
+     */
+    static final int HAS_NEXT = 4;
+
+    /**
+     * Shift of the generator kind in the flags byte.
+     */
+    static final int GENERATOR_SHIFT = 3;
+
+    /**
+     * Bits of the current piece byte holding the rotation.
+     */
+    static final int ROTATION_BITS = 2;
+
+    /**
+     * Mask of the rotation in the current piece byte.
+     */
+    static final int ROTATION_MASK = (1 << ROTATION_BITS) - 1;
+
+    /**
+     * Bits of a packed block type.
+     */
+    static final int TYPE_BITS = 3;
+
+    /**
+     * Mask of a packed block type.
+     */
+    static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+
+    /**
+     * The maximum length in bytes of a state without its frozen cells: flags,
+     * seed, two long varints, the current piece with two int varints, and the
+     * next piece.
+     */
+    private static final int MAX_FIXED_LENGTH = 1 + Long.BYTES + 2 * 10 + 1 + 2 * 5 + 1;
+
+    /**
+     * Bits of a varint byte holding data.
+     */
+    private static final int VARINT_BITS = 7;
+
+    /**
+     * Mask of the data bits of a varint byte.
+     */
+    private static final int VARINT_MASK = 0x7F;
+
+    /**
+     * The continuation bit of a varint byte.
+     */
+    private static final int VARINT_MORE = 0x80;
+
+    /**
+     * Private constructor, to prevent instantiation of this class.
+     */
+    private BoardStateFormat() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Returns the maximum length in bytes of a state of a board.
+     *
+     * @param theWidth the board width.
+     * @param theHeight the board height.
+     * @return the maximum length, reached when every cell is frozen.
+     * @throws IllegalArgumentException if a state of that size cannot be buffered.
+     */
+    static int maxStateLength(final int theWidth, final int theHeight) {
+        final long cellBits = (long) theWidth * theHeight * (1 + TYPE_BITS);
+        final long result = MAX_FIXED_LENGTH + (cellBits + Byte.SIZE - 1) / Byte.SIZE;
+        if (result > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Board too large: " + theWidth + " x "
+                                               + theHeight);
+        }
+        return (int) result;
+    }
+
+    /**
+     * Puts an unsigned varint.
+     *
+     * @param theBuffer the buffer.
+     * @param theValue the value, treated as unsigned.
+     */
+    static void putVarint(final ByteBuffer theBuffer, final long theValue) {
+        long value = theValue;
+        while ((value & ~VARINT_MASK) != 0) {
+            theBuffer.put((byte) (value & VARINT_MASK | VARINT_MORE));
+            value >>>= VARINT_BITS;
+        }
+        theBuffer.put((byte) value);
+    }
+
+    /**
+     * Gets an unsigned varint.
+     *
+     * @param theBuffer the buffer.
+     * @return the value.
+     * @throws IOException if the varint holds more than 64 bits.
+     */
+    static long getVarint(final ByteBuffer theBuffer) throws IOException {
+        long result = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (shift >= Long.SIZE) {
+                throw new IOException("Malformed varint");
+            }
+            b = theBuffer.get();
+            result |= (long) (b & VARINT_MASK) << shift;
+            shift += VARINT_BITS;
+        } while ((b & VARINT_MORE) != 0);
+        return result;
+    }
+}
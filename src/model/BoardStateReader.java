@@ -0,0 +1,368 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Reads the board states written by a BoardStateWriter from a channel, one
+ * after another, and restores each of them on a Board.
+ *
+ * The channel is read in large blocks into a direct buffer and every state is
+ * decoded into arrays reused from state to state, so reading a state does not
+ * allocate unless the Board's PieceGenerator has to be replaced or the Board
+ * has listeners, which receive a BoardChange for the reset.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class BoardStateReader implements Closeable {
+
+    /**
+     * The default size of the buffer in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The TetrisPiece values, cached to avoid cloning the values array.
+     */
+    private static final TetrisPiece[] PIECES = TetrisPiece.values();
+
+    /**
+     * The Rotation values, cached to avoid cloning the values array.
+     */
+    private static final Rotation[] ROTATIONS = Rotation.values();
+
+    /**
+     * The number of Block values.
+     */
+    private static final int BLOCK_TYPES = Block.values().length;
+
+    /**
+     * No frozen rows, to check a position against the board bounds only.
+     */
+    private static final int[] NO_ROWS = new int[0];
+
+    /**
+     * The input of the states.
+     */
+    private final ReadableByteChannel myChannel;
+
+    /**
+     * The width of the boards.
+     */
+    private final int myWidth;
+
+    /**
+     * The height of the boards.
+     */
+    private final int myHeight;
+
+    /**
+     * The maximum length of a state.
+     */
+    private final int myMaxStateLength;
+
+    /**
+     * The bytes read from the channel and not yet decoded.
+     */
+    private ByteBuffer myBuffer;
+
+    /**
+     * Whether the end of the channel was reached.
+     */
+    private boolean myEnded;
+
+    /**
+     * The row masks of the state being read.
+     */
+    private final int[] myRows;
+
+    /**
+     * The block types of the state being read.
+     */
+    private final byte[] myTypes;
+
+    /**
+     * The current piece of the state being read.
+     */
+    private final PieceCursor myCurrent = new PieceCursor();
+
+    /**
+     * The number of read states.
+     */
+    private long myStates;
+
+    /**
+     * Reads the header of a stream of states.
+     *
+     * @param theChannel the input of the states; closed when the reader is closed.
+     * @throws IOException if the input fails or is not a stream of board states.
+     */
+    public BoardStateReader(final ReadableByteChannel theChannel) throws IOException {
+        myChannel = theChannel;
+        myBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        myBuffer.flip();
+        fill(BoardStateFormat.MAX_HEADER_LENGTH);
+        try {
+            if (myBuffer.getInt() != BoardStateFormat.MAGIC) {
+                throw new IOException("Not a board state stream");
+            }
+            final int version = myBuffer.get() & 0xFF;
+            if (version != BoardStateFormat.VERSION) {
+                throw new IOException("Unsupported board state version: " + version);
+            }
+            final long width = BoardStateFormat.getVarint(myBuffer);
+            final long height = BoardStateFormat.getVarint(myBuffer);
+            if (width < 1 || width > Integer.SIZE || height < 1
+                || height > BoardStateFormat.MAX_HEIGHT
+                || width * height > BoardStateFormat.MAX_CELLS) {
+                throw new IOException("Invalid board size: " + width + " x " + height);
+            }
+            myWidth = (int) width;
+            myHeight = (int) height;
+            myMaxStateLength = BoardStateFormat.maxStateLength(myWidth, myHeight);
+        } catch (final BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Invalid board state header", e);
+        }
+        if (myMaxStateLength > myBuffer.capacity()) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(myMaxStateLength);
+            buffer.put(myBuffer).flip();
+            myBuffer = buffer;
+        }
+        myRows = new int[myHeight];
+        myTypes = new byte[myWidth * myHeight];
+    }
+
+    /**
+     * Returns the width of the boards in the stream.
+     *
+     * @return the width.
+     */
+    public int getWidth() {
+        return myWidth;
+    }
+
+    /**
+     * Returns the height of the boards in the stream.
+     *
+     * @return the height.
+     */
+    public int getHeight() {
+        return myHeight;
+    }
+
+    /**
+     * Returns the number of read states.
+     *
+     * @return the number of states.
+     */
+    public long getStateCount() {
+        return myStates;
+    }
+
+    /**
+     * Reads the next state and restores it on a Board, notifying its listeners
+     * of a reset once the whole state is restored. The Board's PieceGenerator
+     * is replaced unless it already is of the state's kind and seed, and moved
+     * to the state's position.
+     *
+     * @param theBoard the Board; it must have the size of the stream.
+     * @return true if a state was read, false at the end of the stream.
+     * @throws IOException if the input fails, ends within a state, or the state is corrupt.
+     */
+    public boolean read(final Board theBoard) throws IOException {
+        if (theBoard.getWidth() != myWidth || theBoard.getHeight() != myHeight) {
+            throw new IllegalArgumentException("Board of " + theBoard.getWidth() + " x "
+                                               + theBoard.getHeight() + " for a stream of "
+                                               + myWidth + " x " + myHeight);
+        }
+        fill(myMaxStateLength);
+        boolean result = false;
+        if (myBuffer.hasRemaining()) {
+            try {
+                readState(theBoard);
+            } catch (final BufferUnderflowException e) {
+                throw new EOFException("Truncated board state " + myStates);
+            }
+            myStates++;
+            result = true;
+        }
+        return result;
+    }
+
+    /**
+     * Closes the channel.
+     *
+     * @throws IOException if the channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        myChannel.close();
+    }
+
+    /**
+     * Decodes a state from the buffer and restores it on a Board.
+     *
+     * @param theBoard the Board.
+     * @throws IOException if the state is corrupt.
+     */
+    private void readState(final Board theBoard) throws IOException {
+        final int flags = myBuffer.get() & 0xFF;
+        final int kind = flags >>> BoardStateFormat.GENERATOR_SHIFT;
+        final long seed = myBuffer.getLong();
+        final long position = BoardStateFormat.getVarint(myBuffer);
+        final long pieceCount = BoardStateFormat.getVarint(myBuffer);
+        myCurrent.clear();
+        if ((flags & BoardStateFormat.HAS_CURRENT) != 0) {
+            final int piece = myBuffer.get() & 0xFF;
+            final int x = ReplayFormat.unzigzag(BoardStateFormat.getVarint(myBuffer));
+            final int y = ReplayFormat.unzigzag(BoardStateFormat.getVarint(myBuffer));
+            myCurrent.set(piece(piece >>> BoardStateFormat.ROTATION_BITS), x, y,
+                          ROTATIONS[piece & BoardStateFormat.ROTATION_MASK]);
+        }
+        TetrisPiece next = null;
+        if ((flags & BoardStateFormat.HAS_NEXT) != 0) {
+            next = piece(myBuffer.get() & 0xFF);
+        }
+        getCells();
+        final boolean gameOver = (flags & BoardStateFormat.GAME_OVER) != 0;
+        if (myCurrent.hasPiece()) {
+            checkCurrent(gameOver);
+        }
+        // listeners are notified once, by restoreState, after the whole state is in place
+        if (!hasGenerator(theBoard, kind, seed)) {
+            theBoard.replacePieceGenerator(ReplayFormat.createGenerator(kind, seed,
+                                                                        position));
+        } else {
+            theBoard.getPieceGenerator().setPosition(position);
+        }
+        theBoard.restoreState(myRows, myTypes, myCurrent, next, gameOver, pieceCount);
+    }
+
+    /**
+     * Checks that the current piece of the state being read is on the board
+     * or at most PieceTable.BLOCKS rows above it, and that it does not overlap
+     * the frozen blocks. The current piece of a game that is over is the one
+     * that froze partly above the board, so it may overlap its own blocks.
+     *
+     * @param theGameOver whether the game of the state is over.
+     * @throws IOException if the current piece is out of place.
+     */
+    private void checkCurrent(final boolean theGameOver) throws IOException {
+        final int shape = myCurrent.getShape();
+        final int x = myCurrent.getX();
+        final int y = myCurrent.getY();
+        int[] rows = myRows;
+        if (theGameOver) {
+            rows = NO_ROWS;
+        }
+        if (x < -PieceTable.BLOCKS || x > myWidth || y < -PieceTable.BLOCKS
+            || y > myHeight + PieceTable.BLOCKS
+            || !PieceTable.fits(rows, myWidth, shape, x, y)) {
+            throw new IOException("Invalid current piece position: (" + x + ", " + y + ")");
+        }
+    }
+
+    /**
+     * Gets the occupancy bits and block types of the frozen cells into the
+     * reused arrays.
+     *
+     * @throws IOException if a block type is invalid.
+     */
+    private void getCells() throws IOException {
+        final long fullRow = -1L >>> (Long.SIZE - myWidth);
+        long bits = 0;
+        int count = 0;
+        for (int y = 0; y < myHeight; y++) {
+            while (count < myWidth) {
+                bits |= (myBuffer.get() & 0xFFL) << count;
+                count += Byte.SIZE;
+            }
+            myRows[y] = (int) (bits & fullRow);
+            bits >>>= myWidth;
+            count -= myWidth;
+        }
+        Arrays.fill(myTypes, (byte) Block.EMPTY.ordinal());
+        for (int y = 0; y < myHeight; y++) {
+            int mask = myRows[y];
+            while (mask != 0) {
+                if (count < BoardStateFormat.TYPE_BITS) {
+                    bits |= (myBuffer.get() & 0xFFL) << count;
+                    count += Byte.SIZE;
+                }
+                final int type = (int) (bits & BoardStateFormat.TYPE_MASK) + 1;
+                if (type >= BLOCK_TYPES) {
+                    throw new IOException("Invalid block type: " + type);
+                }
+                myTypes[y * myWidth + Integer.numberOfTrailingZeros(mask)] = (byte) type;
+                bits >>>= BoardStateFormat.TYPE_BITS;
+                count -= BoardStateFormat.TYPE_BITS;
+                mask &= mask - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns whether the pieces of a Board come from a generator of a kind and seed.
+     *
+     * @param theBoard the Board.
+     * @param theKind ReplayFormat.UNIFORM or BAG.
+     * @param theSeed the seed.
+     * @return true if the Board's generator can be moved to the state's position.
+     */
+    private static boolean hasGenerator(final Board theBoard, final int theKind,
+                                        final long theSeed) {
+        final PieceGenerator generator = theBoard.getPieceGenerator();
+        final boolean kind;
+        if (theKind == ReplayFormat.UNIFORM) {
+            kind = generator instanceof UniformPieceGenerator;
+        } else {
+            kind = theKind == ReplayFormat.BAG && generator instanceof BagPieceGenerator;
+        }
+        return kind && generator.getSeed() == theSeed && !theBoard.hasPieceSequence();
+    }
+
+    /**
+     * Returns the TetrisPiece of a stored ordinal.
+     *
+     * @param theOrdinal the TetrisPiece ordinal.
+     * @return the TetrisPiece.
+     * @throws IOException if the ordinal is invalid.
+     */
+    private static TetrisPiece piece(final int theOrdinal) throws IOException {
+        if (theOrdinal >= PIECES.length) {
+            throw new IOException("Invalid piece: " + theOrdinal);
+        }
+        return PIECES[theOrdinal];
+    }
+
+    /**
+     * Reads from the channel until the buffer holds at least a number of
+     * bytes or the channel ends.
+     *
+     * @param theLength the number of bytes.
+     * @throws IOException if the input fails.
+     */
+    private void fill(final int theLength) throws IOException {
+        if (myBuffer.remaining() < theLength && !myEnded) {
+            myBuffer.compact();
+            while (myBuffer.position() < theLength && !myEnded) {
+                if (myChannel.read(myBuffer) < 0) {
+                    myEnded = true;
+                }
+            }
+            myBuffer.flip();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the states of boards of one size back to back to a channel, in the
+ * bit packed format described in BoardStateFormat.
+ *
+ * A state holds the frozen blocks, the current and next piece, the game over
+ * state and the PieceGenerator seed and position, so a BoardStateReader
+ * restores a Board that plays on exactly as the written one. States are
+ * packed into a direct buffer and written to the channel when it fills up,
+ * so writing a state does not allocate.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class BoardStateWriter implements Closeable {
+
+    /**
+     * The default size of the buffer in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The output of the states.
+     */
+    private final WritableByteChannel myChannel;
+
+    /**
+     * The width of the boards.
+     */
+    private final int myWidth;
+
+    /**
+     * The height of the boards.
+     */
+    private final int myHeight;
+
+    /**
+     * The maximum length of a state.
+     */
+    private final int myMaxStateLength;
+
+    /**
+     * The states not yet written to the channel.
+     */
+    private final ByteBuffer myBuffer;
+
+    /**
+     * The number of written states.
+     */
+    private long myStates;
+
+    /**
+     * Starts a stream of states of boards of one size.
+     *
+     * @param theChannel the output of the states; closed when the writer is closed.
+     * @param theWidth the width of the boards.
+     * @param theHeight the height of the boards; at most 4096 rows and 65536 cells.
+     */
+    public BoardStateWriter(final WritableByteChannel theChannel, final int theWidth,
+                            final int theHeight) {
+        if (theWidth < 1 || theWidth > Integer.SIZE || theHeight < 1
+            || theHeight > BoardStateFormat.MAX_HEIGHT
+            || theWidth * theHeight > BoardStateFormat.MAX_CELLS) {
+            throw new IllegalArgumentException("Invalid board size: "
+                                               + theWidth + " x " + theHeight);
+        }
+        myChannel = theChannel;
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myMaxStateLength = BoardStateFormat.maxStateLength(theWidth, theHeight);
+        myBuffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE, myMaxStateLength));
+        myBuffer.putInt(BoardStateFormat.MAGIC);
+        myBuffer.put((byte) BoardStateFormat.VERSION);
+        BoardStateFormat.putVarint(myBuffer, theWidth);
+        BoardStateFormat.putVarint(myBuffer, theHeight);
+    }
+
+    /**
+     * Writes the state of a Board. The Board's pieces must come from a
+     * UniformPieceGenerator or a BagPieceGenerator, not from a non random sequence.
+     *
+     * @param theBoard the Board; it must have the size of the stream.
+     * @throws IOException if the output fails.
+     */
+    public void write(final Board theBoard) throws IOException {
+        if (theBoard.getWidth() != myWidth || theBoard.getHeight() != myHeight) {
+            throw new IllegalArgumentException("Board of " + theBoard.getWidth() + " x "
+                                               + theBoard.getHeight() + " in a stream of "
+                                               + myWidth + " x " + myHeight);
+        }
+        if (theBoard.hasPieceSequence()) {
+            throw new IllegalArgumentException("Cannot write a non random piece sequence");
+        }
+        final PieceGenerator generator = theBoard.getPieceGenerator();
+        final int kind = ReplayFormat.kindOf(generator);
+        if (myBuffer.remaining() < myMaxStateLength) {
+            drain();
+        }
+        final PieceCursor current = theBoard.getCurrentPiece();
+        final TetrisPiece next = theBoard.getNextPiece();
+        int flags = kind << BoardStateFormat.GENERATOR_SHIFT;
+        if (theBoard.isGameOver()) {
+            flags |= BoardStateFormat.GAME_OVER;
+        }
+        if (current.hasPiece()) {
+            flags |= BoardStateFormat.HAS_CURRENT;
+        }
+        if (next != null) {
+            flags |= BoardStateFormat.HAS_NEXT;
+        }
+        myBuffer.put((byte) flags);
+        myBuffer.putLong(generator.getSeed());
+        BoardStateFormat.putVarint(myBuffer, generator.getPosition());
+        BoardStateFormat.putVarint(myBuffer, theBoard.getPieceCount());
+        if (current.hasPiece()) {
+            final int piece = current.getPiece().ordinal();
+            myBuffer.put((byte) (piece << BoardStateFormat.ROTATION_BITS
+                                 | current.getRotation()));
+            BoardStateFormat.putVarint(myBuffer, ReplayFormat.zigzag(current.getX()));
+            BoardStateFormat.putVarint(myBuffer, ReplayFormat.zigzag(current.getY()));
+        }
+        if (next != null) {
+            myBuffer.put((byte) next.ordinal());
+        }
+        putCells(theBoard.getFrozenRows(), theBoard.getBlockTypes());
+        myStates++;
+    }
+
+    /**
+     * Returns the number of written states.
+     *
+     * @return the number of states.
+     */
+    public long getStateCount() {
+        return myStates;
+    }
+
+    /**
+     * Writes buffered states to the channel.
+     *
+     * @throws IOException if the output fails.
+     */
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /**
+     * Writes buffered states to the channel and closes it.
+     *
+     * @throws IOException if the output fails.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            myChannel.close();
+        }
+    }
+
+    /**
+     * Puts the occupancy bits of the frozen rows followed by the types of the
+     * frozen blocks as one bit stream.
+     *
+     * @param theRows the row masks.
+     * @param theTypes the Block ordinals of the cells.
+     */
+    private void putCells(final int[] theRows, final byte[] theTypes) {
+        long bits = 0;
+        int count = 0;
+        for (int y = 0; y < myHeight; y++) {
+            bits |= (theRows[y] & 0xFFFFFFFFL) << count;
+            count += myWidth;
+            while (count >= Byte.SIZE) {
+                myBuffer.put((byte) bits);
+                bits >>>= Byte.SIZE;
+                count -= Byte.SIZE;
+            }
+        }
+        for (int y = 0; y < myHeight; y++) {
+            int mask = theRows[y];
+            while (mask != 0) {
+                final int x = Integer.numberOfTrailingZeros(mask);
+                final int type = theTypes[y * myWidth + x] - 1;
+                bits |= (long) type << count;
+                count += BoardStateFormat.TYPE_BITS;
+                if (count >= Byte.SIZE) {
+                    myBuffer.put((byte) bits);
+                    bits >>>= Byte.SIZE;
+                    count -= Byte.SIZE;
+                }
+                mask &= mask - 1;
+            }
+        }
+        if (count > 0) {
+            myBuffer.put((byte) bits);
+        }
+    }
+
+    /**
+     * Writes the buffer to the channel and empties it.
+     *
+     * @throws IOException if the output fails.
+     */
+    private void drain() throws IOException {
+        myBuffer.flip();
+        while (myBuffer.hasRemaining()) {
+            myChannel.write(myBuffer);
+        }
+        myBuffer.clear();
+    }
+}
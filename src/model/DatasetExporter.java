@@ -0,0 +1,444 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Plays Tetris games on a Board without a GUI and exports every decision as a
+ * training tuple: the state of the game, the action an InputPolicy chose in
+ * it, and the reward that action earned.
+ *
+ * The tuples are written to a directory in chunks of a fixed number of
+ * tuples. A chunk is two files in the same tuple order:
+ * - chunk-NNNNN STATES_EXTENSION: the states before the actions, written by a
+ *   BoardStateWriter and read back by a BoardStateReader.
+ * - chunk-NNNNN LABELS_EXTENSION: one LABEL_LENGTH byte label per tuple, the
+ *   BoardAction ordinal, a flags byte with TERMINAL set if the action ended
+ *   the game or TRUNCATED set if the game was stopped at the piece limit
+ *   after it, and the reward as a big endian int.
+ * The reward is the score the action added under the rules of a ScoreKeeper,
+ * including the gravity step that follows the action, if any. The fixed
+ * length labels let a reader find the label of any tuple of a chunk directly.
+ *
+ * INDEX_NAME lists the chunks as they are completed, one tab separated line
+ * each: the chunk name, the number of its first tuple, its number of tuples
+ * and the lengths of its two files. A run that is stopped leaves an index of
+ * its complete chunks. Memory use does not depend on the number of tuples.
+ *
+ * An exporter drives a single InputPolicy, which keeps the plan of the game
+ * it is playing, so it runs one export at a time; an export started while
+ * another is running throws IllegalStateException. Concurrent exports each
+ * use their own exporter.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class DatasetExporter {
+
+    /**
+     * The file name extension of chunk states.
+     */
+    public static final String STATES_EXTENSION = ".tbst";
+
+    /**
+     * The file name extension of chunk labels.
+     */
+    public static final String LABELS_EXTENSION = ".tlab";
+
+    /**
+     * The file name of the chunk index.
+     */
+    public static final String INDEX_NAME = "index.tsv";
+
+    /**
+     * Length in bytes of a label.
+     */
+    public static final int LABEL_LENGTH = 2 + Integer.BYTES;
+
+    /**
+     * Label flag of an action that ended the game.
+     */
+    public static final int TERMINAL = 1;
+
+    /**
+     * Label flag of the last action of a game stopped at the piece limit.
+     */
+    public static final int TRUNCATED = 2;
+
+    /**
+     * Default number of tuples per chunk.
+     */
+    private static final int DEFAULT_CHUNK_TUPLES = 1 << 20;
+
+    /**
+     * Default number of games played by main.
+     */
+    private static final int DEFAULT_GAMES = 1000;
+
+    /**
+     * Labels buffered before they are written.
+     */
+    private static final int BUFFERED_LABELS = 1 << 13;
+
+    /**
+     * Width of the simulated boards.
+     */
+    private final int myWidth;
+
+    /**
+     * Height of the simulated boards.
+     */
+    private final int myHeight;
+
+    /**
+     * The policy choosing the actions.
+     */
+    private final InputPolicy myPolicy;
+
+    /**
+     * Number of policy actions between gravity steps; 0 disables gravity.
+     */
+    private final int myActionsPerStep;
+
+    /**
+     * Number of tuples per chunk.
+     */
+    private final int myChunkTuples;
+
+    /**
+     * Whether an export is running.
+     */
+    private final AtomicBoolean myExporting = new AtomicBoolean();
+
+    /**
+     * Constructs a DatasetExporter.
+     *
+     * @param theWidth width of the simulated boards.
+     * @param theHeight height of the simulated boards.
+     * @param thePolicy the policy choosing the actions.
+     * @param theActionsPerStep number of policy actions between gravity steps;
+     *        0 disables gravity, in which case the policy must drop or step pieces.
+     * @param theChunkTuples number of tuples per chunk.
+     */
+    public DatasetExporter(final int theWidth, final int theHeight,
+                           final InputPolicy thePolicy, final int theActionsPerStep,
+                           final int theChunkTuples) {
+        if (theChunkTuples < 1) {
+            throw new IllegalArgumentException("Invalid chunk size: " + theChunkTuples);
+        }
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myPolicy = thePolicy;
+        myActionsPerStep = theActionsPerStep;
+        myChunkTuples = theChunkTuples;
+    }
+
+    /**
+     * Plays games until each one is over or has frozen a number of pieces and
+     * exports their tuples to a directory. The directory is created if needed
+     * and must not already hold an export.
+     *
+     * @param theDirectory the directory.
+     * @param theGenerator the generator of the pieces of every game; a
+     *        UniformPieceGenerator or a BagPieceGenerator.
+     * @param theGames the number of games to play.
+     * @param thePieceLimit the number of pieces after which a game ends;
+     *        0 plays every game until it is over.
+     * @return the totals of the run.
+     * @throws IOException if a file cannot be created or written.
+     * @throws IllegalStateException if another export of this exporter is running.
+     */
+    public ExportResult export(final Path theDirectory, final PieceGenerator theGenerator,
+                               final int theGames, final int thePieceLimit)
+        throws IOException {
+        // fails before any file is created if the states cannot be written
+        ReplayFormat.kindOf(theGenerator);
+        if (!myExporting.compareAndSet(false, true)) {
+            throw new IllegalStateException("An export of this exporter is running");
+        }
+        try {
+            return export(theDirectory, theGenerator, theGames, thePieceLimit,
+                          new ScoreKeeper(),
+                          ByteBuffer.allocateDirect(BUFFERED_LABELS * LABEL_LENGTH));
+        } finally {
+            myExporting.set(false);
+        }
+    }
+
+    /**
+     * Plays the games of an export and exports their tuples.
+     *
+     * @param theDirectory the directory.
+     * @param theGenerator the generator of the pieces of every game.
+     * @param theGames the number of games to play.
+     * @param thePieceLimit the number of pieces after which a game ends, or 0.
+     * @param theScoring pieces, lines and score of the current game.
+     * @param theLabels the buffer of the labels not yet written, reused by every chunk.
+     * @return the totals of the run.
+     * @throws IOException if a file cannot be created or written.
+     */
+    private ExportResult export(final Path theDirectory, final PieceGenerator theGenerator,
+                                final int theGames, final int thePieceLimit,
+                                final ScoreKeeper theScoring, final ByteBuffer theLabels)
+        throws IOException {
+        Files.createDirectories(theDirectory);
+        final Board board = new Board(myWidth, myHeight);
+        board.setPieceGenerator(theGenerator);
+        board.addPieceFrozenListener(theScoring);
+        board.addGameOverListener(theScoring);
+        long tuples = 0;
+        int chunks = 0;
+        long bytes = 0;
+        final long start = System.nanoTime();
+        try (BufferedWriter index = Files.newBufferedWriter(theDirectory.resolve(INDEX_NAME),
+                                                            StandardCharsets.US_ASCII,
+                                                            StandardOpenOption.CREATE_NEW,
+                                                            StandardOpenOption.WRITE)) {
+            Chunk chunk = null;
+            try {
+                for (int game = 0; game < theGames; game++) {
+                    theScoring.reset();
+                    board.newGame();
+                    int actions = 0;
+                    boolean limited = false;
+                    while (!board.isGameOver() && !limited) {
+                        if (chunk == null) {
+                            chunk = new Chunk(theDirectory, chunks, tuples, theLabels);
+                        }
+                        chunk.putState(board);
+                        final int score = theScoring.getScore();
+                        final BoardAction action = myPolicy.nextAction(board);
+                        action.applyTo(board);
+                        actions++;
+                        if (myActionsPerStep > 0 && actions % myActionsPerStep == 0
+                            && !board.isGameOver()) {
+                            board.step();
+                        }
+                        limited = thePieceLimit > 0
+                                  && theScoring.getPieces() >= thePieceLimit;
+                        int flags = 0;
+                        if (board.isGameOver()) {
+                            flags |= TERMINAL;
+                        } else if (limited) {
+                            flags |= TRUNCATED;
+                        }
+                        chunk.putLabel(action, flags, theScoring.getScore() - score);
+                        tuples++;
+                        if (chunk.myTuples == myChunkTuples) {
+                            bytes += chunk.finish(index);
+                            chunks++;
+                            chunk = null;
+                        }
+                    }
+                }
+                if (chunk != null) {
+                    bytes += chunk.finish(index);
+                    chunks++;
+                    chunk = null;
+                }
+            } finally {
+                if (chunk != null) {
+                    chunk.close();
+                }
+            }
+        }
+        return new ExportResult(theGames, tuples, chunks, bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * Exports the games of a SearchPolicy on a standard board and prints the totals.
+     *
+     * @param theArgs the directory, an optional number of games, piece limit
+     *        per game and seed of the pieces.
+     * @throws IOException if the export fails.
+     */
+    public static void main(final String[] theArgs) throws IOException {
+        if (theArgs.length == 0) {
+            System.err.println("Usage: DatasetExporter directory [games] [pieceLimit]"
+                               + " [seed]");
+        } else {
+            int games = DEFAULT_GAMES;
+            int pieceLimit = 0;
+            long seed = System.nanoTime();
+            if (theArgs.length > 1) {
+                games = Integer.parseInt(theArgs[1]);
+            }
+            if (theArgs.length > 2) {
+                pieceLimit = Integer.parseInt(theArgs[2]);
+            }
+            if (theArgs.length > 3) {
+                seed = Long.parseLong(theArgs[3]);
+            }
+            final Board board = new Board();
+            final InputPolicy policy =
+                new SearchPolicy(new PlacementSearch(new HeuristicEvaluator()));
+            final DatasetExporter exporter =
+                new DatasetExporter(board.getWidth(), board.getHeight(), policy, 0,
+                                    DEFAULT_CHUNK_TUPLES);
+            System.out.println(exporter.export(Paths.get(theArgs[0]),
+                                               new BagPieceGenerator(seed), games,
+                                               pieceLimit));
+        }
+    }
+
+    /**
+     * The files of the chunk being written.
+     */
+    private final class Chunk implements Closeable {
+
+        /**
+         * The name of the chunk.
+         */
+        private final String myName;
+
+        /**
+         * The number of the first tuple of the chunk.
+         */
+        private final long myFirst;
+
+        /**
+         * The writer of the states.
+         */
+        private final BoardStateWriter myStates;
+
+        /**
+         * The states file.
+         */
+        private final FileChannel myStateChannel;
+
+        /**
+         * The labels file.
+         */
+        private final FileChannel myLabelChannel;
+
+        /**
+         * The labels not yet written.
+         */
+        private final ByteBuffer myLabels;
+
+        /**
+         * The number of tuples in the chunk.
+         */
+        private int myTuples;
+
+        /**
+         * Creates the files of a chunk.
+         *
+         * @param theDirectory the directory.
+         * @param theNumber the number of the chunk.
+         * @param theFirst the number of the first tuple of the chunk.
+         * @param theLabels the buffer of the labels, emptied for the chunk.
+         * @throws IOException if a file cannot be created.
+         */
+        Chunk(final Path theDirectory, final int theNumber, final long theFirst,
+              final ByteBuffer theLabels) throws IOException {
+            myName = String.format("chunk-%05d", theNumber);
+            myFirst = theFirst;
+            myLabelChannel = FileChannel.open(theDirectory.resolve(myName + LABELS_EXTENSION),
+                                              StandardOpenOption.CREATE_NEW,
+                                              StandardOpenOption.WRITE);
+            try {
+                myStateChannel = FileChannel.open(theDirectory.resolve(myName
+                                                                       + STATES_EXTENSION),
+                                                  StandardOpenOption.CREATE_NEW,
+                                                  StandardOpenOption.WRITE);
+            } catch (final IOException e) {
+                myLabelChannel.close();
+                throw e;
+            }
+            myStates = new BoardStateWriter(myStateChannel, myWidth, myHeight);
+            myLabels = theLabels;
+            myLabels.clear();
+        }
+
+        /**
+         * Adds the state of a tuple.
+         *
+         * @param theBoard the Board holding the state.
+         * @throws IOException if the states cannot be written.
+         */
+        void putState(final Board theBoard) throws IOException {
+            myStates.write(theBoard);
+        }
+
+        /**
+         * Adds the label of the tuple whose state was added last.
+         *
+         * @param theAction the action.
+         * @param theFlags TERMINAL, TRUNCATED or 0.
+         * @param theReward the score the action added.
+         * @throws IOException if the labels cannot be written.
+         */
+        void putLabel(final BoardAction theAction, final int theFlags,
+                      final int theReward) throws IOException {
+            if (myLabels.remaining() < LABEL_LENGTH) {
+                drain();
+            }
+            myLabels.put((byte) theAction.ordinal());
+            myLabels.put((byte) theFlags);
+            myLabels.putInt(theReward);
+            myTuples++;
+        }
+
+        /**
+         * Completes the chunk and adds it to the index.
+         *
+         * @param theIndex the index.
+         * @return the number of bytes of the chunk.
+         * @throws IOException if a file cannot be written.
+         */
+        long finish(final BufferedWriter theIndex) throws IOException {
+            final long labelBytes = (long) myTuples * LABEL_LENGTH;
+            final long stateBytes;
+            try {
+                drain();
+                myStates.flush();
+                stateBytes = myStateChannel.size();
+            } finally {
+                close();
+            }
+            theIndex.write(myName + '\t' + myFirst + '\t' + myTuples + '\t' + stateBytes
+                           + '\t' + labelBytes);
+            theIndex.newLine();
+            theIndex.flush();
+            return stateBytes + labelBytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                myStates.close();
+            } finally {
+                myLabelChannel.close();
+            }
+        }
+
+        /**
+         * Writes the buffered labels to the labels file.
+         *
+         * @throws IOException if the labels cannot be written.
+         */
+        private void drain() throws IOException {
+            myLabels.flip();
+            while (myLabels.hasRemaining()) {
+                myLabelChannel.write(myLabels);
+            }
+            myLabels.clear();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * The totals of a DatasetExporter run.
+ * An ExportResult is immutable.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class ExportResult {
+
+    /**
+     * Nanoseconds in one second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * The number of games played.
+     */
+    private final int myGames;
+
+    /**
+     * The number of exported tuples.
+     */
+    private final long myTuples;
+
+    /**
+     * The number of chunks written.
+     */
+    private final int myChunks;
+
+    /**
+     * The number of bytes written to the chunks.
+     */
+    private final long myBytes;
+
+    /**
+     * The wall clock time of the run in nanoseconds.
+     */
+    private final long myElapsedNanos;
+
+    /**
+     * Constructs an ExportResult.
+     *
+     * @param theGames the number of games played.
+     * @param theTuples the number of exported tuples.
+     * @param theChunks the number of chunks written.
+     * @param theBytes the number of bytes written to the chunks.
+     * @param theElapsedNanos the wall clock time of the run in nanoseconds.
+     */
+    public ExportResult(final int theGames, final long theTuples, final int theChunks,
+                        final long theBytes, final long theElapsedNanos) {
+        myGames = theGames;
+        myTuples = theTuples;
+        myChunks = theChunks;
+        myBytes = theBytes;
+        myElapsedNanos = theElapsedNanos;
+    }
+
+    /**
+     * Returns the number of games played.
+     *
+     * @return the number of games.
+     */
+    public int getGames() {
+        return myGames;
+    }
+
+    /**
+     * Returns the number of exported tuples.
+     *
+     * @return the number of tuples.
+     */
+    public long getTuples() {
+        return myTuples;
+    }
+
+    /**
+     * Returns the number of chunks written.
+     *
+     * @return the number of chunks.
+     */
+    public int getChunks() {
+        return myChunks;
+    }
+
+    /**
+     * Returns the number of bytes written to the chunks.
+     *
+     * @return the number of bytes.
+     */
+    public long getBytes() {
+        return myBytes;
+    }
+
+    /**
+     * Returns the wall clock time of the run in nanoseconds.
+     *
+     * @return the elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return myElapsedNanos;
+    }
+
+    /**
+     * Returns the number of tuples exported per second of wall clock time.
+     *
+     * @return the tuple throughput, or 0 if no time elapsed.
+     */
+    public double getTuplesPerSecond() {
+        double result = 0;
+        if (myElapsedNanos > 0) {
+            result = myTuples * NANOS_PER_SECOND / myElapsedNanos;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("games: %d, tuples: %d, chunks: %d, bytes: %d, tuples/sec: %.0f",
+                             myGames, myTuples, myChunks, myBytes, getTuplesPerSecond());
+    }
+}
@@ -0,0 +1,22 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * Listens for the end of a game on a Board.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public interface GameOverListener {
+
+    /**
+     * Called once when a frozen piece ends the game, before the listeners of
+     * the frozen piece are called.
+     */
+    void gameOver();
+}
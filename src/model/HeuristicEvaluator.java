@@ -0,0 +1,67 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * A PlacementEvaluator using a weighted sum of four board features:
+ * the total height of the columns, the number of cleared lines, the number
+ * of holes (empty cells below a filled cell) and the bumpiness (the sum of
+ * the height differences of neighboring columns).
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public class HeuristicEvaluator implements PlacementEvaluator {
+
+    /**
+     * Weight of the total column height.
+     */
+    private static final double HEIGHT_WEIGHT = -0.510066;
+
+    /**
+     * Weight of the cleared lines.
+     */
+    private static final double LINES_WEIGHT = 0.760666;
+
+    /**
+     * Weight of the holes.
+     */
+    private static final double HOLES_WEIGHT = -0.35663;
+
+    /**
+     * Weight of the bumpiness.
+     */
+    private static final double BUMPINESS_WEIGHT = -0.184483;
+
+    @Override
+    public double evaluate(final int[] theRows, final int theWidth,
+                           final int theLinesCleared) {
+        final int[] heights = new int[theWidth];
+        final int full = -1 >>> (Integer.SIZE - theWidth);
+        int seen = 0;
+        int holes = 0;
+        for (int y = theRows.length - 1; y >= 0; y--) {
+            holes += Integer.bitCount(~theRows[y] & seen & full);
+            int added = theRows[y] & ~seen;
+            while (added != 0) {
+                heights[Integer.numberOfTrailingZeros(added)] = y + 1;
+                added &= added - 1;
+            }
+            seen |= theRows[y];
+        }
+        int height = 0;
+        int bumpiness = 0;
+        for (int x = 0; x < theWidth; x++) {
+            height += heights[x];
+            if (x > 0) {
+                bumpiness += Math.abs(heights[x] - heights[x - 1]);
+            }
+        }
+        return HEIGHT_WEIGHT * height + LINES_WEIGHT * theLinesCleared
+               + HOLES_WEIGHT * holes + BUMPINESS_WEIGHT * bumpiness;
+    }
+}
@@ -0,0 +1,24 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * Chooses the actions applied to a Board by a headless Simulation.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public interface InputPolicy {
+
+    /**
+     * Chooses the next action to apply to a Board.
+     *
+     * @param theBoard the Board the action will be applied to.
+     * @return the next action.
+     */
+    BoardAction nextAction(Board theBoard);
+}
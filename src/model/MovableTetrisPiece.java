@@ -136,6 +136,15 @@ public final class MovableTetrisPiece {
     protected Point[] getBoardPoints() {
         return getPoints(myPosition);
     }
+
+    /**
+     * Get the PieceTable shape index of this piece type in its current rotation.
+     * 
+     * @return the shape index.
+     */
+    protected int getShape() {
+        return PieceTable.index(myTetrisPiece, myRotation);
+    }
     
     
     
@@ -217,42 +226,23 @@ public final class MovableTetrisPiece {
 
     /**
      * Get the block points of the TetrisPiece transformed by x and y.
+     * The rotated offsets come from the precomputed PieceTable.
      * 
      * @param thePoint the point to transform the points around.
      * @return array of TetrisPiece block points.
      */
     private Point[] getPoints(final Point thePoint) {
-
-        final Point[] blocks = myTetrisPiece.getPoints();
-        
+        final int shape = getShape();
+        int x = 0;
+        int y = 0;
+        if (thePoint != null) {
+            x = thePoint.x();
+            y = thePoint.y();
+        }
+        final Point[] blocks = new Point[PieceTable.BLOCKS];
         for (int i = 0; i < blocks.length; i++) {
-            final Point block = blocks[i];
-            if (myTetrisPiece != TetrisPiece.O) {
-                switch (myRotation) {
-                    case QUARTER:
-                        blocks[i] = new Point(block.y(),
-                                              myTetrisPiece.getWidth() - block.x() - 1);
-                        
-                        break;
-                    case HALF:
-                        blocks[i] = new Point(myTetrisPiece.getWidth() - block.x() - 1,
-                                              myTetrisPiece.getWidth() - block.y() - 1);
-                        
-                        break;
-                    case THREEQUARTER:                 
-                        blocks[i] = new Point(myTetrisPiece.getWidth() - block.y() - 1,
-                                              block.x());
-                        
-                        
-                        break;
-                    default:
-                }
-            }
-            if (thePoint != null) {
-                blocks[i] = blocks[i].transform(thePoint);
-            }
+            blocks[i] = new Point(x + PieceTable.x(shape, i), y + PieceTable.y(shape, i));
         }
-
         return blocks;
     }
     
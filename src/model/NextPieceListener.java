@@ -0,0 +1,23 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * Listens for changes of the next piece of a Board.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public interface NextPieceListener {
+
+    /**
+     * Called when the piece shown as the next piece changes.
+     *
+     * @param thePiece the new next piece.
+     */
+    void nextPiece(TetrisPiece thePiece);
+}
@@ -0,0 +1,153 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * The Board's current piece held as primitives: piece type, position and rotation.
+ *
+ * Unlike MovableTetrisPiece a PieceCursor is mutable. The Board tests candidate
+ * moves against the PieceTable and commits the legal ones in place, so moving
+ * the current piece never allocates.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+final class PieceCursor {
+
+    /**
+     * The TetrisPiece values, cached to avoid cloning the values array.
+     */
+    private static final TetrisPiece[] PIECES = TetrisPiece.values();
+
+    /**
+     * Ordinal of the TetrisPiece, or -1 when there is no current piece.
+     */
+    private int myPiece = -1;
+
+    /**
+     * The x coordinate of the board position.
+     */
+    private int myX;
+
+    /**
+     * The y coordinate of the board position.
+     */
+    private int myY;
+
+    /**
+     * Ordinal of the Rotation.
+     */
+    private int myRotation;
+
+    /**
+     * Places a new piece on the cursor.
+     *
+     * @param thePiece the TetrisPiece.
+     * @param theX the x coordinate of the board position.
+     * @param theY the y coordinate of the board position.
+     * @param theRotation the Rotation.
+     */
+    void set(final TetrisPiece thePiece, final int theX, final int theY,
+             final Rotation theRotation) {
+        myPiece = thePiece.ordinal();
+        moveTo(theX, theY, theRotation.ordinal());
+    }
+
+    /**
+     * Copies the state of another cursor into this one.
+     *
+     * @param theOther the cursor to copy.
+     */
+    void set(final PieceCursor theOther) {
+        myPiece = theOther.myPiece;
+        moveTo(theOther.myX, theOther.myY, theOther.myRotation);
+    }
+
+    /**
+     * Moves the piece to a new position and rotation.
+     *
+     * @param theX the x coordinate of the board position.
+     * @param theY the y coordinate of the board position.
+     * @param theRotation the Rotation ordinal.
+     */
+    void moveTo(final int theX, final int theY, final int theRotation) {
+        myX = theX;
+        myY = theY;
+        myRotation = theRotation;
+    }
+
+    /**
+     * Removes the piece from the cursor.
+     */
+    void clear() {
+        myPiece = -1;
+    }
+
+    /**
+     * Returns whether the cursor holds a piece.
+     *
+     * @return true if the cursor holds a piece.
+     */
+    boolean hasPiece() {
+        return myPiece >= 0;
+    }
+
+    /**
+     * Returns the TetrisPiece on the cursor.
+     *
+     * @return the TetrisPiece.
+     */
+    TetrisPiece getPiece() {
+        return PIECES[myPiece];
+    }
+
+    /**
+     * Returns the x coordinate of the board position.
+     *
+     * @return the x coordinate.
+     */
+    int getX() {
+        return myX;
+    }
+
+    /**
+     * Returns the y coordinate of the board position.
+     *
+     * @return the y coordinate.
+     */
+    int getY() {
+        return myY;
+    }
+
+    /**
+     * Returns the Rotation ordinal.
+     *
+     * @return the Rotation ordinal.
+     */
+    int getRotation() {
+        return myRotation;
+    }
+
+    /**
+     * Returns the PieceTable shape index of the piece in its current rotation.
+     *
+     * @return the shape index.
+     */
+    int getShape() {
+        return getShape(myRotation);
+    }
+
+    /**
+     * Returns the PieceTable shape index of the piece in another rotation.
+     *
+     * @param theRotation the Rotation ordinal.
+     * @return the shape index.
+     */
+    int getShape(final int theRotation) {
+        return myPiece * PieceTable.ROTATIONS + theRotation;
+    }
+}
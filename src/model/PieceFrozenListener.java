@@ -0,0 +1,24 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * Listens for pieces freezing on a Board.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public interface PieceFrozenListener {
+
+    /**
+     * Called after a piece froze, its complete rows were cleared and the
+     * next piece entered the board.
+     *
+     * @param theChange the change, with the frozen piece and the cleared rows.
+     */
+    void pieceFrozen(BoardChange theChange);
+}
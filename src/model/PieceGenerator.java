@@ -0,0 +1,57 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * Generates the sequence of pieces entering a Board.
+ *
+ * A generator is owned by one Board and is not shared, so boards running on
+ * different threads never contend for it. Generators are deterministic: two
+ * generators with the same seed produce the same pieces, and a generator can
+ * be moved to any position of its sequence.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public interface PieceGenerator {
+
+    /**
+     * Returns the next piece of the sequence.
+     *
+     * @return the next piece.
+     */
+    TetrisPiece next();
+
+    /**
+     * Returns the seed of the sequence.
+     *
+     * @return the seed.
+     */
+    long getSeed();
+
+    /**
+     * Returns the number of pieces generated since the start of the sequence.
+     *
+     * @return the position in the sequence.
+     */
+    long getPosition();
+
+    /**
+     * Moves to a position of the sequence, so that the next piece is the
+     * piece at that position.
+     *
+     * @param thePosition the number of pieces to skip from the start of the sequence.
+     */
+    void setPosition(long thePosition);
+
+    /**
+     * Returns an independent generator at the same position of the same sequence.
+     *
+     * @return the copy.
+     */
+    PieceGenerator copy();
+}
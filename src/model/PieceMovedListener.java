@@ -0,0 +1,24 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * Listens for moves of the current piece on a Board. A reset of the whole
+ * board, by Board.newGame or Board.restore, is reported as a move too.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public interface PieceMovedListener {
+
+    /**
+     * Called after the current piece moved or the board was reset.
+     *
+     * @param theChange the change; isReset tells whether the whole board was reset.
+     */
+    void pieceMoved(BoardChange theChange);
+}
@@ -0,0 +1,396 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import model.wallkicks.WallKick;
+
+/**
+ * Precomputed block offsets for every TetrisPiece in every Rotation.
+ *
+ * Each (TetrisPiece, Rotation) pair is identified by a shape index. For each shape
+ * the table holds the local x and y offsets of its blocks, its bounding box,
+ * and one occupancy bit mask per local row. Row masks are relative to the
+ * left edge of the bounding box, so a shape placed at x covers the board
+ * columns selected by rowMask(shape, row) shifted left by x + minX(shape).
+ *
+ * The table also holds the wall kick offsets tried when a shape is rotated
+ * clockwise or counter-clockwise, taken from WallKick.
+ *
+ * The tables are built once when the class is loaded and are never modified.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+final class PieceTable {
+
+    /**
+     * The number of blocks in a TetrisPiece.
+     */
+    static final int BLOCKS = 4;
+
+    /**
+     * The number of Rotations of a TetrisPiece.
+     */
+    static final int ROTATIONS = Rotation.values().length;
+
+    /**
+     * The number of shapes in the table.
+     */
+    static final int SHAPES = TetrisPiece.values().length * ROTATIONS;
+
+    /**
+     * The maximum number of local rows covered by a shape.
+     */
+    static final int ROWS = 4;
+
+    /**
+     * Local x offsets of the blocks, BLOCKS entries per shape.
+     */
+    private static final int[] X_OFFSETS = new int[SHAPES * BLOCKS];
+
+    /**
+     * Local y offsets of the blocks, BLOCKS entries per shape.
+     */
+    private static final int[] Y_OFFSETS = new int[SHAPES * BLOCKS];
+
+    /**
+     * Smallest local x offset of each shape.
+     */
+    private static final int[] MIN_X = new int[SHAPES];
+
+    /**
+     * Largest local x offset of each shape.
+     */
+    private static final int[] MAX_X = new int[SHAPES];
+
+    /**
+     * Smallest local y offset of each shape.
+     */
+    private static final int[] MIN_Y = new int[SHAPES];
+
+    /**
+     * Largest local y offset of each shape.
+     */
+    private static final int[] MAX_Y = new int[SHAPES];
+
+    /**
+     * Occupancy bit masks of the local rows of each shape, ROWS entries per shape.
+     * Entry 0 is the row at minY; bit 0 is the column at minX.
+     */
+    private static final int[] ROW_MASKS = new int[SHAPES * ROWS];
+
+    /**
+     * Wall kick offsets of each shape as x, y pairs, two entries per shape:
+     * counter-clockwise kicks first, then clockwise kicks.
+     */
+    private static final int[][] KICKS = new int[SHAPES * 2][];
+
+    static {
+        for (final TetrisPiece piece : TetrisPiece.values()) {
+            for (final Rotation rotation : Rotation.values()) {
+                final int shape = index(piece, rotation);
+                final Point[] points = piece.getPoints();
+                int minX = Integer.MAX_VALUE;
+                int maxX = Integer.MIN_VALUE;
+                int minY = Integer.MAX_VALUE;
+                int maxY = Integer.MIN_VALUE;
+                for (int i = 0; i < BLOCKS; i++) {
+                    final Point p = rotate(piece, rotation, points[i]);
+                    X_OFFSETS[shape * BLOCKS + i] = p.x();
+                    Y_OFFSETS[shape * BLOCKS + i] = p.y();
+                    minX = Math.min(minX, p.x());
+                    maxX = Math.max(maxX, p.x());
+                    minY = Math.min(minY, p.y());
+                    maxY = Math.max(maxY, p.y());
+                }
+                MIN_X[shape] = minX;
+                MAX_X[shape] = maxX;
+                MIN_Y[shape] = minY;
+                MAX_Y[shape] = maxY;
+                for (int i = 0; i < BLOCKS; i++) {
+                    final int row = Y_OFFSETS[shape * BLOCKS + i] - minY;
+                    final int x = X_OFFSETS[shape * BLOCKS + i] - minX;
+                    ROW_MASKS[shape * ROWS + row] |= 1 << x;
+                }
+                KICKS[shape * 2] = kicks(piece, rotation, rotation.counterClockwise());
+                KICKS[shape * 2 + 1] = kicks(piece, rotation, rotation.clockwise());
+            }
+        }
+    }
+
+    /**
+     * Private constructor, to prevent instantiation of this class.
+     */
+    private PieceTable() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Returns the shape index of a TetrisPiece in a Rotation.
+     *
+     * @param thePiece the TetrisPiece.
+     * @param theRotation the Rotation.
+     * @return the shape index.
+     */
+    static int index(final TetrisPiece thePiece, final Rotation theRotation) {
+        return thePiece.ordinal() * ROTATIONS + theRotation.ordinal();
+    }
+
+    /**
+     * Returns the shape index of the same piece rotated once.
+     *
+     * @param theShape the shape index.
+     * @param theClockwise true to rotate clockwise, false for counter-clockwise.
+     * @return the rotated shape index.
+     */
+    static int rotate(final int theShape, final boolean theClockwise) {
+        int rotation = theShape % ROTATIONS + ROTATIONS - 1;
+        if (theClockwise) {
+            rotation += 2;
+        }
+        return theShape - theShape % ROTATIONS + rotation % ROTATIONS;
+    }
+
+    /**
+     * Returns the Rotation ordinal of a shape.
+     *
+     * @param theShape the shape index.
+     * @return the Rotation ordinal.
+     */
+    static int rotation(final int theShape) {
+        return theShape % ROTATIONS;
+    }
+
+    /**
+     * Tests whether a shape placed at a position fits on a board of frozen rows.
+     * The shape must lie inside the side and bottom walls and must not overlap
+     * a frozen block; rows above the board are always empty. The bounds are
+     * checked against the shape's bounding box and collisions are checked one
+     * row mask at a time.
+     *
+     * @param theRows occupancy masks of the frozen rows, bottom row first.
+     * @param theWidth the width of the board.
+     * @param theShape the shape index.
+     * @param theX the x coordinate of the shape's position.
+     * @param theY the y coordinate of the shape's position.
+     * @return true if the shape fits.
+     */
+    static boolean fits(final int[] theRows, final int theWidth, final int theShape,
+                        final int theX, final int theY) {
+        final int left = theX + MIN_X[theShape];
+        final int bottom = theY + MIN_Y[theShape];
+        boolean result = left >= 0 && theX + MAX_X[theShape] < theWidth && bottom >= 0;
+        final int top = Math.min(theY + MAX_Y[theShape], theRows.length - 1);
+        for (int y = bottom; result && y <= top; y++) {
+            result = (theRows[y] & ROW_MASKS[theShape * ROWS + y - bottom] << left) == 0;
+        }
+        return result;
+    }
+
+    /**
+     * Finds the first wall kick that lets a shape rotate on a board of frozen rows.
+     *
+     * @param theRows occupancy masks of the frozen rows, bottom row first.
+     * @param theWidth the width of the board.
+     * @param theShape the shape index before the rotation.
+     * @param theX the x coordinate of the shape's position.
+     * @param theY the y coordinate of the shape's position.
+     * @param theClockwise true to rotate clockwise, false for counter-clockwise.
+     * @return the kick number, or -1 if the shape cannot rotate.
+     */
+    static int findKick(final int[] theRows, final int theWidth, final int theShape,
+                        final int theX, final int theY, final boolean theClockwise) {
+        final int rotated = rotate(theShape, theClockwise);
+        final int[] kicks = KICKS[kickIndex(theShape, theClockwise)];
+        int result = -1;
+        for (int i = 0; result < 0 && i < kicks.length / 2; i++) {
+            if (fits(theRows, theWidth, rotated, theX + kicks[i * 2],
+                     theY + kicks[i * 2 + 1])) {
+                result = i;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the local x offset of a block of a shape.
+     *
+     * @param theShape the shape index.
+     * @param theBlock the block number, 0 to BLOCKS - 1.
+     * @return the local x offset.
+     */
+    static int x(final int theShape, final int theBlock) {
+        return X_OFFSETS[theShape * BLOCKS + theBlock];
+    }
+
+    /**
+     * Returns the local y offset of a block of a shape.
+     *
+     * @param theShape the shape index.
+     * @param theBlock the block number, 0 to BLOCKS - 1.
+     * @return the local y offset.
+     */
+    static int y(final int theShape, final int theBlock) {
+        return Y_OFFSETS[theShape * BLOCKS + theBlock];
+    }
+
+    /**
+     * Returns the smallest local x offset of a shape.
+     *
+     * @param theShape the shape index.
+     * @return the smallest local x offset.
+     */
+    static int minX(final int theShape) {
+        return MIN_X[theShape];
+    }
+
+    /**
+     * Returns the largest local x offset of a shape.
+     *
+     * @param theShape the shape index.
+     * @return the largest local x offset.
+     */
+    static int maxX(final int theShape) {
+        return MAX_X[theShape];
+    }
+
+    /**
+     * Returns the smallest local y offset of a shape.
+     *
+     * @param theShape the shape index.
+     * @return the smallest local y offset.
+     */
+    static int minY(final int theShape) {
+        return MIN_Y[theShape];
+    }
+
+    /**
+     * Returns the largest local y offset of a shape.
+     *
+     * @param theShape the shape index.
+     * @return the largest local y offset.
+     */
+    static int maxY(final int theShape) {
+        return MAX_Y[theShape];
+    }
+
+    /**
+     * Returns the occupancy bit mask of a local row of a shape.
+     *
+     * @param theShape the shape index.
+     * @param theRow the local row counted from minY, 0 to ROWS - 1.
+     * @return the row mask relative to minX.
+     */
+    static int rowMask(final int theShape, final int theRow) {
+        return ROW_MASKS[theShape * ROWS + theRow];
+    }
+
+    /**
+     * Returns the number of wall kick offsets to try when rotating a shape.
+     *
+     * @param theShape the shape index before the rotation.
+     * @param theClockwise true for a clockwise rotation.
+     * @return the number of wall kick offsets.
+     */
+    static int kickCount(final int theShape, final boolean theClockwise) {
+        return KICKS[kickIndex(theShape, theClockwise)].length / 2;
+    }
+
+    /**
+     * Returns the x offset of a wall kick.
+     *
+     * @param theShape the shape index before the rotation.
+     * @param theClockwise true for a clockwise rotation.
+     * @param theKick the kick number, 0 to kickCount - 1.
+     * @return the x offset of the kick.
+     */
+    static int kickX(final int theShape, final boolean theClockwise, final int theKick) {
+        return KICKS[kickIndex(theShape, theClockwise)][theKick * 2];
+    }
+
+    /**
+     * Returns the y offset of a wall kick.
+     *
+     * @param theShape the shape index before the rotation.
+     * @param theClockwise true for a clockwise rotation.
+     * @param theKick the kick number, 0 to kickCount - 1.
+     * @return the y offset of the kick.
+     */
+    static int kickY(final int theShape, final boolean theClockwise, final int theKick) {
+        return KICKS[kickIndex(theShape, theClockwise)][theKick * 2 + 1];
+    }
+
+    /**
+     * Returns the index of a shape's kicks in the kick table.
+     *
+     * @param theShape the shape index before the rotation.
+     * @param theClockwise true for a clockwise rotation.
+     * @return the kick table index.
+     */
+    private static int kickIndex(final int theShape, final boolean theClockwise) {
+        int index = theShape * 2;
+        if (theClockwise) {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * Builds the wall kick offsets of a rotation as x, y pairs.
+     * The O piece is rotated in place without kicks.
+     *
+     * @param thePiece the TetrisPiece.
+     * @param theFrom the Rotation before rotating.
+     * @param theTo the Rotation after rotating.
+     * @return the kick offsets.
+     */
+    private static int[] kicks(final TetrisPiece thePiece, final Rotation theFrom,
+                               final Rotation theTo) {
+        final int[] result;
+        if (thePiece == TetrisPiece.O) {
+            result = new int[2];
+        } else {
+            final Point[] offsets = WallKick.getWallKicks(thePiece, theFrom, theTo);
+            result = new int[offsets.length * 2];
+            for (int i = 0; i < offsets.length; i++) {
+                result[i * 2] = offsets[i].x();
+                result[i * 2 + 1] = offsets[i].y();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Rotates a local block point of a TetrisPiece.
+     * The O piece looks the same in every Rotation and is never rotated.
+     *
+     * @param thePiece the TetrisPiece.
+     * @param theRotation the Rotation to apply.
+     * @param theBlock the unrotated local block point.
+     * @return the rotated local block point.
+     */
+    private static Point rotate(final TetrisPiece thePiece, final Rotation theRotation,
+                                final Point theBlock) {
+        Point result = theBlock;
+        if (thePiece != TetrisPiece.O) {
+            final int width = thePiece.getWidth();
+            switch (theRotation) {
+                case QUARTER:
+                    result = new Point(theBlock.y(), width - theBlock.x() - 1);
+                    break;
+                case HALF:
+                    result = new Point(width - theBlock.x() - 1, width - theBlock.y() - 1);
+                    break;
+                case THREEQUARTER:
+                    result = new Point(width - theBlock.y() - 1, theBlock.x());
+                    break;
+                default:
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.util.List;
+
+/**
+ * A final resting place of the current piece found by a PlacementSearch,
+ * with its score and the actions that move the piece there and freeze it.
+ * A Placement is immutable.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class Placement {
+
+    /**
+     * The piece type.
+     */
+    private final TetrisPiece myPiece;
+
+    /**
+     * The rotation of the piece.
+     */
+    private final Rotation myRotation;
+
+    /**
+     * The x coordinate of the piece position.
+     */
+    private final int myX;
+
+    /**
+     * The y coordinate of the piece position.
+     */
+    private final int myY;
+
+    /**
+     * The number of rows the placement clears.
+     */
+    private final int myLinesCleared;
+
+    /**
+     * The score given by the evaluator.
+     */
+    private final double myScore;
+
+    /**
+     * The actions that move the piece to the placement and freeze it.
+     */
+    private final List<BoardAction> myActions;
+
+    /**
+     * Constructs a Placement.
+     *
+     * @param thePiece the piece type.
+     * @param theRotation the rotation of the piece.
+     * @param theX the x coordinate of the piece position.
+     * @param theY the y coordinate of the piece position.
+     * @param theLinesCleared the number of rows the placement clears.
+     * @param theScore the score given by the evaluator.
+     * @param theActions the actions that move the piece there and freeze it;
+     *        the list must not be modified afterwards.
+     */
+    Placement(final TetrisPiece thePiece, final Rotation theRotation, final int theX,
+              final int theY, final int theLinesCleared, final double theScore,
+              final List<BoardAction> theActions) {
+        myPiece = thePiece;
+        myRotation = theRotation;
+        myX = theX;
+        myY = theY;
+        myLinesCleared = theLinesCleared;
+        myScore = theScore;
+        myActions = theActions;
+    }
+
+    /**
+     * Returns the piece type.
+     *
+     * @return the piece type.
+     */
+    public TetrisPiece getPiece() {
+        return myPiece;
+    }
+
+    /**
+     * Returns the rotation of the piece.
+     *
+     * @return the rotation.
+     */
+    public Rotation getRotation() {
+        return myRotation;
+    }
+
+    /**
+     * Returns the x coordinate of the piece position.
+     *
+     * @return the x coordinate.
+     */
+    public int getX() {
+        return myX;
+    }
+
+    /**
+     * Returns the y coordinate of the piece position.
+     *
+     * @return the y coordinate.
+     */
+    public int getY() {
+        return myY;
+    }
+
+    /**
+     * Returns the number of rows the placement clears.
+     *
+     * @return the number of cleared rows.
+     */
+    public int getLinesCleared() {
+        return myLinesCleared;
+    }
+
+    /**
+     * Returns the score given by the evaluator. Placements that leave a block
+     * above the board end the game and score negative infinity.
+     *
+     * @return the score.
+     */
+    public double getScore() {
+        return myScore;
+    }
+
+    /**
+     * Returns the actions that move the current piece to this placement and freeze it.
+     *
+     * @return an unmodifiable list of actions ending with DROP.
+     */
+    public List<BoardAction> getActions() {
+        return myActions;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s at (%d, %d), lines: %d, score: %.3f",
+                             myPiece, myRotation, myX, myY, myLinesCleared, myScore);
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * Scores the board that results from placing a piece.
+ *
+ * A PlacementSearch calls its evaluator from several threads at once, so
+ * implementations must be thread-safe.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public interface PlacementEvaluator {
+
+    /**
+     * Scores a board after a piece was frozen and full rows were cleared.
+     *
+     * @param theRows occupancy masks of the frozen rows, bottom row first; bit x
+     *        of theRows[y] is set when cell (x, y) is filled. The array is a
+     *        private copy and may be modified.
+     * @param theWidth the width of the board.
+     * @param theLinesCleared the number of rows cleared by the placement.
+     * @return the score of the board; higher is better.
+     */
+    double evaluate(int[] theRows, int theWidth, int theLinesCleared);
+}
@@ -0,0 +1,555 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Finds every final placement of a Board's current piece and scores it.
+ *
+ * The search walks all positions the piece can reach from where it is with
+ * the moves left, right, down, rotate clockwise and rotate counter-clockwise,
+ * using the same wall kicks as the Board. Every reachable position where the
+ * piece cannot move down is a final placement; placements that cover the same
+ * cells are reported once. This includes every rotation and column as well as
+ * tucks and kicks under overhangs.
+ *
+ * The placements are scored with a PlacementEvaluator, split across the
+ * threads of a ForkJoinPool. With a TranspositionTable the scores are cached
+ * by the Zobrist hash of the resulting board, so a board reached again by
+ * another placement, piece or game is not evaluated twice.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public class PlacementSearch {
+
+    /**
+     * The moves used to walk the reachable positions.
+     */
+    private static final BoardAction[] MOVES = {BoardAction.LEFT, BoardAction.RIGHT,
+        BoardAction.DOWN, BoardAction.ROTATE_CW, BoardAction.ROTATE_CCW};
+
+    /**
+     * Columns searched beyond each side wall and rows below the floor, enough
+     * for any shape offset.
+     */
+    private static final int MARGIN = PieceTable.BLOCKS;
+
+    /**
+     * Rows searched above the board, enough for spawning and upward kicks.
+     */
+    private static final int HEADROOM = 2 * PieceTable.BLOCKS;
+
+    /**
+     * Maximum number of placements scored by one fork-join task.
+     */
+    private static final int THRESHOLD = 4;
+
+    /**
+     * Bits of a transposition key holding the number of cleared rows.
+     */
+    private static final int KEY_BITS = 8;
+
+    /**
+     * Bits of a placement footprint key holding the y coordinate, enough for
+     * any board height.
+     */
+    private static final int FOOTPRINT_Y_BITS = Integer.SIZE;
+
+    /**
+     * The evaluator scoring the placements.
+     */
+    private final PlacementEvaluator myEvaluator;
+
+    /**
+     * The pool running the scoring tasks.
+     */
+    private final ForkJoinPool myPool;
+
+    /**
+     * The cache of scores, or null.
+     */
+    private final TranspositionTable myTable;
+
+    /**
+     * Constructs a PlacementSearch scoring on the common fork-join pool.
+     *
+     * @param theEvaluator the evaluator scoring the placements.
+     */
+    public PlacementSearch(final PlacementEvaluator theEvaluator) {
+        this(theEvaluator, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a PlacementSearch.
+     *
+     * @param theEvaluator the evaluator scoring the placements.
+     * @param thePool the pool running the scoring tasks.
+     */
+    public PlacementSearch(final PlacementEvaluator theEvaluator,
+                           final ForkJoinPool thePool) {
+        this(theEvaluator, thePool, null);
+    }
+
+    /**
+     * Constructs a PlacementSearch caching scores in a TranspositionTable.
+     * The table must only hold scores of the same evaluator.
+     *
+     * @param theEvaluator the evaluator scoring the placements.
+     * @param thePool the pool running the scoring tasks.
+     * @param theTable the cache of scores, or null to evaluate every placement.
+     */
+    public PlacementSearch(final PlacementEvaluator theEvaluator, final ForkJoinPool thePool,
+                           final TranspositionTable theTable) {
+        myEvaluator = theEvaluator;
+        myPool = thePool;
+        myTable = theTable;
+    }
+
+    /**
+     * Finds and scores every final placement of a Board's current piece.
+     *
+     * @param theBoard the Board.
+     * @return the placements; empty if the Board has no current piece.
+     */
+    public List<Placement> findPlacements(final Board theBoard) {
+        final PieceCursor piece = theBoard.getCurrentPiece();
+        List<Placement> result = Collections.emptyList();
+        if (piece.hasPiece()) {
+            result = new Search(theBoard, piece).run();
+        }
+        return result;
+    }
+
+    /**
+     * Finds the best scoring final placement of a Board's current piece.
+     * Of placements with equal scores the first one found is returned.
+     *
+     * @param theBoard the Board.
+     * @return the best placement, or null if the Board has no current piece.
+     */
+    public Placement findBest(final Board theBoard) {
+        Placement best = null;
+        for (final Placement placement : findPlacements(theBoard)) {
+            if (best == null || placement.getScore() > best.getScore()) {
+                best = placement;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * One search over the positions of a piece on a fixed set of frozen rows.
+     */
+    private final class Search {
+
+        /**
+         * Occupancy masks of the frozen rows.
+         */
+        private final int[] myRows;
+
+        /**
+         * The width of the board.
+         */
+        private final int myWidth;
+
+        /**
+         * Zobrist keys of the board cells.
+         */
+        private final long[] myCellKeys;
+
+        /**
+         * Zobrist hash of the frozen rows.
+         */
+        private final long myFrozenHash;
+
+        /**
+         * Number of x coordinates in the position space.
+         */
+        private final int mySpaceWidth;
+
+        /**
+         * Number of y coordinates in the position space.
+         */
+        private final int mySpaceHeight;
+
+        /**
+         * Shape index of the piece in Rotation.NONE.
+         */
+        private final int myBaseShape;
+
+        /**
+         * Position each position was first reached from, or -1 if unreached.
+         */
+        private final int[] myParent;
+
+        /**
+         * Move ordinal that first reached each position.
+         */
+        private final byte[] myMove;
+
+        /**
+         * Positions of the final placements.
+         */
+        private int[] myFinals;
+
+        /**
+         * Number of final placements.
+         */
+        private int myFinalCount;
+
+        /**
+         * Number of cleared rows of each final placement.
+         */
+        private int[] myCleared;
+
+        /**
+         * Score of each final placement.
+         */
+        private double[] myScores;
+
+        /**
+         * Constructs a search.
+         *
+         * @param theBoard the board holding the frozen rows.
+         * @param thePiece the piece to place.
+         */
+        Search(final Board theBoard, final PieceCursor thePiece) {
+            myRows = theBoard.copyFrozenRows();
+            myWidth = theBoard.getWidth();
+            myCellKeys = theBoard.getCellKeys();
+            myFrozenHash = theBoard.getFrozenHash();
+            mySpaceWidth = myWidth + 2 * MARGIN;
+            mySpaceHeight = MARGIN + Math.max(myRows.length, thePiece.getY() + 1) + HEADROOM;
+            myBaseShape = thePiece.getShape(0);
+            myParent = new int[mySpaceWidth * mySpaceHeight * PieceTable.ROTATIONS];
+            myMove = new byte[myParent.length];
+            Arrays.fill(myParent, -1);
+            myFinals = new int[PieceTable.BLOCKS];
+            walk(encode(thePiece.getX(), thePiece.getY(), thePiece.getRotation()));
+        }
+
+        /**
+         * Scores the final placements and builds their results.
+         *
+         * @return the placements.
+         */
+        List<Placement> run() {
+            myCleared = new int[myFinalCount];
+            myScores = new double[myFinalCount];
+            myPool.invoke(new ScoreTask(0, myFinalCount));
+            final TetrisPiece[] pieces = TetrisPiece.values();
+            final Rotation[] rotations = Rotation.values();
+            final List<Placement> result = new ArrayList<>(myFinalCount);
+            for (int i = 0; i < myFinalCount; i++) {
+                final int position = myFinals[i];
+                result.add(new Placement(pieces[myBaseShape / PieceTable.ROTATIONS],
+                                         rotations[rotationOf(position)],
+                                         xOf(position), yOf(position),
+                                         myCleared[i], myScores[i], actions(position)));
+            }
+            return result;
+        }
+
+        /**
+         * Walks every position reachable from a start position breadth first,
+         * recording the final placements.
+         *
+         * @param theStart the start position.
+         */
+        private void walk(final int theStart) {
+            final Set<Long> footprints = new HashSet<>();
+            final int[] queue = new int[myParent.length];
+            int head = 0;
+            int tail = 0;
+            myParent[theStart] = theStart;
+            queue[tail++] = theStart;
+            while (head < tail) {
+                final int position = queue[head++];
+                final int shape = myBaseShape + rotationOf(position);
+                final int x = xOf(position);
+                final int y = yOf(position);
+                if (!PieceTable.fits(myRows, myWidth, shape, x, y - 1)
+                    && footprints.add(footprint(shape, x, y))) {
+                    addFinal(position);
+                }
+                for (final BoardAction move : MOVES) {
+                    final int next = move(shape, x, y, move);
+                    if (next >= 0 && myParent[next] < 0) {
+                        myParent[next] = position;
+                        myMove[next] = (byte) move.ordinal();
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Applies a move to a position.
+         *
+         * @param theShape the shape at the position.
+         * @param theX the x coordinate of the position.
+         * @param theY the y coordinate of the position.
+         * @param theMove the move.
+         * @return the position after the move, or -1 if the move is illegal
+         *         or leaves the searched space.
+         */
+        private int move(final int theShape, final int theX, final int theY,
+                         final BoardAction theMove) {
+            int shape = theShape;
+            int x = theX;
+            int y = theY;
+            boolean legal = true;
+            switch (theMove) {
+                case LEFT:
+                    x--;
+                    break;
+                case RIGHT:
+                    x++;
+                    break;
+                case DOWN:
+                    y--;
+                    break;
+                default:
+                    final boolean clockwise = theMove == BoardAction.ROTATE_CW;
+                    final int kick = PieceTable.findKick(myRows, myWidth, theShape,
+                                                         theX, theY, clockwise);
+                    legal = kick >= 0;
+                    if (legal) {
+                        x += PieceTable.kickX(theShape, clockwise, kick);
+                        y += PieceTable.kickY(theShape, clockwise, kick);
+                        shape = PieceTable.rotate(theShape, clockwise);
+                    }
+            }
+            int result = -1;
+            if (legal && x + MARGIN >= 0 && x + MARGIN < mySpaceWidth
+                && y + MARGIN >= 0 && y + MARGIN < mySpaceHeight
+                && PieceTable.fits(myRows, myWidth, shape, x, y)) {
+                result = encode(x, y, PieceTable.rotation(shape));
+            }
+            return result;
+        }
+
+        /**
+         * Records a final placement.
+         *
+         * @param thePosition the position of the placement.
+         */
+        private void addFinal(final int thePosition) {
+            if (myFinalCount == myFinals.length) {
+                myFinals = Arrays.copyOf(myFinals, myFinalCount * 2);
+            }
+            myFinals[myFinalCount++] = thePosition;
+        }
+
+        /**
+         * Rebuilds the actions that lead to a final placement and freeze the piece.
+         * Trailing down moves are replaced by a single drop.
+         *
+         * @param thePosition the position of the placement.
+         * @return the actions.
+         */
+        private List<BoardAction> actions(final int thePosition) {
+            final BoardAction[] moves = BoardAction.values();
+            final List<BoardAction> result = new ArrayList<>();
+            int position = thePosition;
+            while (myParent[position] != position) {
+                result.add(moves[myMove[position]]);
+                position = myParent[position];
+            }
+            Collections.reverse(result);
+            while (!result.isEmpty() && result.get(result.size() - 1) == BoardAction.DOWN) {
+                result.remove(result.size() - 1);
+            }
+            result.add(BoardAction.DROP);
+            return Collections.unmodifiableList(result);
+        }
+
+        /**
+         * Freezes a final placement into a copy of the frozen rows, clears full
+         * rows and scores the result.
+         *
+         * @param theIndex the index of the final placement.
+         */
+        private void score(final int theIndex) {
+            final int position = myFinals[theIndex];
+            final int shape = myBaseShape + rotationOf(position);
+            final int[] rows = myRows.clone();
+            boolean lockOut = false;
+            long hash = myFrozenHash;
+            for (int i = 0; i < PieceTable.BLOCKS; i++) {
+                final int x = xOf(position) + PieceTable.x(shape, i);
+                final int y = yOf(position) + PieceTable.y(shape, i);
+                if (y < rows.length) {
+                    rows[y] |= 1 << x;
+                    hash ^= myCellKeys[y * myWidth + x];
+                } else {
+                    lockOut = true;
+                }
+            }
+            if (lockOut) {
+                myScores[theIndex] = Double.NEGATIVE_INFINITY;
+            } else {
+                final int full = -1 >>> (Integer.SIZE - myWidth);
+                int target = 0;
+                for (int y = 0; y < rows.length; y++) {
+                    if (rows[y] != full) {
+                        rows[target++] = rows[y];
+                    }
+                }
+                final int cleared = rows.length - target;
+                Arrays.fill(rows, target, rows.length, 0);
+                myCleared[theIndex] = cleared;
+                myScores[theIndex] = evaluate(rows, cleared, hash);
+            }
+        }
+
+        /**
+         * Scores frozen rows, using and filling the cache of scores if there is one.
+         *
+         * @param theRows occupancy masks of the frozen rows after clearing.
+         * @param theCleared the number of cleared rows.
+         * @param theHash the Zobrist hash of the rows before clearing.
+         * @return the score.
+         */
+        private double evaluate(final int[] theRows, final int theCleared,
+                                final long theHash) {
+            double result = Double.NaN;
+            long key = 0;
+            if (myTable != null) {
+                key = theHash;
+                if (theCleared > 0) {
+                    key = Zobrist.hashRows(myCellKeys, myWidth, theRows, 0, theRows.length);
+                }
+                // the evaluator also sees the cleared rows, and keys depend on the width
+                key ^= Zobrist.mix((long) myWidth << KEY_BITS | theCleared);
+                result = myTable.probe(key, 0);
+            }
+            if (Double.isNaN(result)) {
+                result = myEvaluator.evaluate(theRows, myWidth, theCleared);
+                if (myTable != null) {
+                    myTable.store(key, 0, result);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns a key identifying the cells covered by a shape at a position.
+         *
+         * @param theShape the shape.
+         * @param theX the x coordinate of the position.
+         * @param theY the y coordinate of the position.
+         * @return the footprint key.
+         */
+        private long footprint(final int theShape, final int theX, final int theY) {
+            long result = theX + PieceTable.minX(theShape) + MARGIN;
+            result = result << FOOTPRINT_Y_BITS
+                     | (theY + PieceTable.minY(theShape)) & 0xFFFFFFFFL;
+            for (int row = 0; row < PieceTable.ROWS; row++) {
+                result = result << PieceTable.BLOCKS | PieceTable.rowMask(theShape, row);
+            }
+            return result;
+        }
+
+        /**
+         * Encodes a position.
+         *
+         * @param theX the x coordinate.
+         * @param theY the y coordinate.
+         * @param theRotation the Rotation ordinal.
+         * @return the position.
+         */
+        private int encode(final int theX, final int theY, final int theRotation) {
+            return (theRotation * mySpaceHeight + theY + MARGIN) * mySpaceWidth
+                   + theX + MARGIN;
+        }
+
+        /**
+         * Returns the x coordinate of a position.
+         *
+         * @param thePosition the position.
+         * @return the x coordinate.
+         */
+        private int xOf(final int thePosition) {
+            return thePosition % mySpaceWidth - MARGIN;
+        }
+
+        /**
+         * Returns the y coordinate of a position.
+         *
+         * @param thePosition the position.
+         * @return the y coordinate.
+         */
+        private int yOf(final int thePosition) {
+            return thePosition / mySpaceWidth % mySpaceHeight - MARGIN;
+        }
+
+        /**
+         * Returns the Rotation ordinal of a position.
+         *
+         * @param thePosition the position.
+         * @return the Rotation ordinal.
+         */
+        private int rotationOf(final int thePosition) {
+            return thePosition / mySpaceWidth / mySpaceHeight;
+        }
+
+        /**
+         * Scores a range of final placements, splitting large ranges in two.
+         */
+        private final class ScoreTask extends RecursiveAction {
+
+            /**
+             * A generated serial version ID.
+             */
+            private static final long serialVersionUID = 1L;
+
+            /**
+             * First index of the range.
+             */
+            private final int myFrom;
+
+            /**
+             * Index after the end of the range.
+             */
+            private final int myTo;
+
+            /**
+             * Constructs a ScoreTask.
+             *
+             * @param theFrom first index of the range.
+             * @param theTo index after the end of the range.
+             */
+            ScoreTask(final int theFrom, final int theTo) {
+                super();
+                myFrom = theFrom;
+                myTo = theTo;
+            }
+
+            @Override
+            protected void compute() {
+                if (myTo - myFrom <= THRESHOLD) {
+                    for (int i = myFrom; i < myTo; i++) {
+                        score(i);
+                    }
+                } else {
+                    final int middle = (myFrom + myTo) >>> 1;
+                    invokeAll(new ScoreTask(myFrom, middle), new ScoreTask(middle, myTo));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.util.Random;
+
+/**
+ * An InputPolicy that chooses every action uniformly at random.
+ * Two policies created with the same seed choose the same actions.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public class RandomPolicy implements InputPolicy {
+
+    /**
+     * The actions to choose from.
+     */
+    private static final BoardAction[] ACTIONS = BoardAction.values();
+
+    /**
+     * The source of random choices.
+     */
+    private final Random myRandom;
+
+    /**
+     * Constructs a RandomPolicy.
+     *
+     * @param theSeed the seed of the random choices.
+     */
+    public RandomPolicy(final long theSeed) {
+        myRandom = new Random(theSeed);
+    }
+
+    @Override
+    public BoardAction nextAction(final Board theBoard) {
+        return ACTIONS[myRandom.nextInt(ACTIONS.length)];
+    }
+}
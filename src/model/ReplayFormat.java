@@ -0,0 +1,392 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Constants and encodings of the binary replay format.
+ *
+ * A replay starts with a header: the magic number, the format version, the
+ * board width and height (at most MAX_HEIGHT rows and MAX_CELLS cells), the
+ * kind of PieceGenerator, its seed and its position when the game started.
+ * The header is followed by one record per action until the end of the
+ * stream. A record is a single varint holding the number of ticks since the
+ * previous record shifted left by three bits, with the action code in the
+ * low three bits. The action code is the BoardAction ordinal. An action in
+ * the same tick as the previous one or up to 15 ticks after it takes one byte.
+ *
+ * Code 7 escapes a record that is not an action. It is followed by a kind byte:
+ * - KEYFRAME: a varint length and a packed snapshot of the game at the
+ *   record's tick (generator position, piece count, game over state, current
+ *   and next piece, frozen rows with their block types).
+ * - INDEX: ends the records. It holds the number of keyframes and, for each,
+ *   the tick and the byte offset of its record, both as varint deltas from
+ *   the previous keyframe. The stream ends with a trailer: the long offset of
+ *   the index record and the int TRAILER_MAGIC, so a reader can find the index
+ *   from the end of the file.
+ *
+ * Varints are unsigned LEB128: seven bits per byte, least significant
+ * group first, with the high bit set on every byte but the last.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+final class ReplayFormat {
+
+    /**
+     * The magic number starting every replay: "TRPL".
+     */
+    static final int MAGIC = 0x5452504C;
+
+    /**
+     * The version of the format.
+     */
+    static final int VERSION = 2;
+
+    /**
+     * The magic number ending a replay with an index: "TRIX".
+     */
+    static final int TRAILER_MAGIC = 0x54524958;
+
+    /**
+     * Length in bytes of the trailer.
+     */
+    static final int TRAILER_LENGTH = Long.BYTES + Integer.BYTES;
+
+    /**
+     * The largest board height a replay may declare, so that a crafted header
+     * cannot make a reader allocate an unbounded Board.
+     */
+    static final int MAX_HEIGHT = 4096;
+
+    /**
+     * The largest number of board cells a replay may declare.
+     */
+    static final int MAX_CELLS = 1 << 16;
+
+    /**
+     * Bits of a record holding the action code.
+     */
+    static final int ACTION_BITS = 3;
+
+    /**
+     * Mask of the action code of a record.
+     */
+    static final int ACTION_MASK = (1 << ACTION_BITS) - 1;
+
+    /**
+     * Action code escaping a record that is not an action.
+     */
+    static final int ESCAPE = ACTION_MASK;
+
+    /**
+     * Escaped record kind of a keyframe.
+     */
+    static final int KEYFRAME = 0;
+
+    /**
+     * Escaped record kind of the keyframe index.
+     */
+    static final int INDEX = 1;
+
+    /**
+     * Generator kind of a UniformPieceGenerator.
+     */
+    static final int UNIFORM = 0;
+
+    /**
+     * Generator kind of a BagPieceGenerator.
+     */
+    static final int BAG = 1;
+
+    /**
+     * Bits of a varint byte holding data.
+     */
+    private static final int VARINT_BITS = 7;
+
+    /**
+     * Mask of the data bits of a varint byte.
+     */
+    private static final int VARINT_MASK = 0x7F;
+
+    /**
+     * The continuation bit of a varint byte.
+     */
+    private static final int VARINT_MORE = 0x80;
+
+    /**
+     * Bits of a packed block type.
+     */
+    private static final int TYPE_BITS = 4;
+
+    /**
+     * Mask of a packed block type.
+     */
+    private static final int TYPE_MASK = (1 << TYPE_BITS) - 1;
+
+    /**
+     * Private constructor, to prevent instantiation of this class.
+     */
+    private ReplayFormat() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Writes an unsigned varint.
+     *
+     * @param theOut the output.
+     * @param theValue the value, treated as unsigned.
+     * @throws IOException if the output fails.
+     */
+    static void writeVarint(final DataOutput theOut, final long theValue) throws IOException {
+        long value = theValue;
+        while ((value & ~VARINT_MASK) != 0) {
+            theOut.writeByte((int) (value & VARINT_MASK) | VARINT_MORE);
+            value >>>= VARINT_BITS;
+        }
+        theOut.writeByte((int) value);
+    }
+
+    /**
+     * Reads an unsigned varint.
+     *
+     * @param theIn the input.
+     * @return the value.
+     * @throws IOException if the input fails, ends, or holds more than 64 bits.
+     */
+    static long readVarint(final DataInput theIn) throws IOException {
+        return readVarint(theIn, theIn.readUnsignedByte());
+    }
+
+    /**
+     * Reads the rest of an unsigned varint whose first byte was already read.
+     *
+     * @param theIn the input.
+     * @param theFirst the first byte.
+     * @return the value.
+     * @throws IOException if the input fails, ends, or holds more than 64 bits.
+     */
+    static long readVarint(final DataInput theIn, final int theFirst) throws IOException {
+        long result = theFirst & VARINT_MASK;
+        int shift = VARINT_BITS;
+        int b = theFirst;
+        while ((b & VARINT_MORE) != 0) {
+            if (shift >= Long.SIZE) {
+                throw new IOException("Malformed varint");
+            }
+            b = theIn.readUnsignedByte();
+            result |= (long) (b & VARINT_MASK) << shift;
+            shift += VARINT_BITS;
+        }
+        return result;
+    }
+
+    /**
+     * Writes a keyframe record, without its tick, holding the state of a game.
+     *
+     * @param theOut the output.
+     * @param theBoard the Board holding the game.
+     * @throws IOException if the output fails.
+     */
+    static void writeKeyframe(final DataOutput theOut, final Board theBoard)
+        throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        writeVarint(out, theBoard.getPieceGenerator().getPosition());
+        writeVarint(out, theBoard.getPieceCount());
+        out.writeBoolean(theBoard.isGameOver());
+        final PieceCursor current = theBoard.getCurrentPiece();
+        if (current.hasPiece()) {
+            out.writeByte(current.getPiece().ordinal() + 1);
+            writeVarint(out, zigzag(current.getX()));
+            writeVarint(out, zigzag(current.getY()));
+            out.writeByte(current.getRotation());
+        } else {
+            out.writeByte(0);
+        }
+        if (theBoard.getNextPiece() == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(theBoard.getNextPiece().ordinal() + 1);
+        }
+        final int width = theBoard.getWidth();
+        final int[] rows = theBoard.copyFrozenRows();
+        final byte[] types = theBoard.copyBlockTypes();
+        int top = rows.length;
+        while (top > 0 && rows[top - 1] == 0) {
+            top--;
+        }
+        writeVarint(out, top);
+        for (int y = 0; y < top; y++) {
+            writeVarint(out, rows[y] & 0xFFFFFFFFL);
+            int packed = 0;
+            int count = 0;
+            int mask = rows[y];
+            while (mask != 0) {
+                final int type = types[y * width + Integer.numberOfTrailingZeros(mask)];
+                packed |= type << TYPE_BITS * count++;
+                if (count == 2) {
+                    out.writeByte(packed);
+                    packed = 0;
+                    count = 0;
+                }
+                mask &= mask - 1;
+            }
+            if (count > 0) {
+                out.writeByte(packed);
+            }
+        }
+        theOut.writeByte(KEYFRAME);
+        writeVarint(theOut, bytes.size());
+        theOut.write(bytes.toByteArray());
+    }
+
+    /**
+     * Reads a keyframe record, after its kind byte, and restores its game on a Board.
+     * The Board's piece generator is moved to the keyframe's position.
+     *
+     * @param theIn the input.
+     * @param theBoard the Board; it must have the size of the recorded board.
+     * @throws IOException if the input fails or the keyframe is corrupt.
+     */
+    static void readKeyframe(final DataInput theIn, final Board theBoard) throws IOException {
+        readVarint(theIn);
+        final long position = readVarint(theIn);
+        final long pieceCount = readVarint(theIn);
+        final boolean gameOver = theIn.readBoolean();
+        final PieceCursor current = new PieceCursor();
+        final int piece = theIn.readUnsignedByte();
+        if (piece > 0) {
+            final int x = unzigzag(readVarint(theIn));
+            final int y = unzigzag(readVarint(theIn));
+            final int rotation = theIn.readUnsignedByte();
+            if (rotation >= PieceTable.ROTATIONS) {
+                throw new IOException("Invalid rotation: " + rotation);
+            }
+            current.set(piece(piece), x, y, Rotation.values()[rotation]);
+        }
+        final int next = theIn.readUnsignedByte();
+        final int width = theBoard.getWidth();
+        final int[] rows = new int[theBoard.getHeight()];
+        final byte[] types = new byte[width * rows.length];
+        final long top = readVarint(theIn);
+        if (top > rows.length) {
+            throw new IOException("Invalid keyframe height: " + top);
+        }
+        for (int y = 0; y < top; y++) {
+            final long row = readVarint(theIn);
+            if (row >>> width != 0) {
+                throw new IOException("Invalid keyframe row: " + row);
+            }
+            rows[y] = (int) row;
+            int mask = rows[y];
+            int packed = 0;
+            int count = 0;
+            while (mask != 0) {
+                if (count == 0) {
+                    packed = theIn.readUnsignedByte();
+                }
+                final int type = packed >>> TYPE_BITS * count & TYPE_MASK;
+                if (type == 0 || type >= Block.values().length) {
+                    throw new IOException("Invalid block type: " + type);
+                }
+                types[y * width + Integer.numberOfTrailingZeros(mask)] = (byte) type;
+                count = (count + 1) % 2;
+                mask &= mask - 1;
+            }
+        }
+        TetrisPiece nextPiece = null;
+        if (next > 0) {
+            nextPiece = piece(next);
+        }
+        theBoard.getPieceGenerator().setPosition(position);
+        theBoard.restoreState(rows, types, current, nextPiece, gameOver, pieceCount);
+    }
+
+    /**
+     * Returns the TetrisPiece of a stored piece code.
+     *
+     * @param theCode the TetrisPiece ordinal plus one.
+     * @return the TetrisPiece.
+     * @throws IOException if the code is invalid.
+     */
+    private static TetrisPiece piece(final int theCode) throws IOException {
+        final TetrisPiece[] pieces = TetrisPiece.values();
+        if (theCode < 1 || theCode > pieces.length) {
+            throw new IOException("Invalid piece: " + theCode);
+        }
+        return pieces[theCode - 1];
+    }
+
+    /**
+     * Maps a signed int to an unsigned value with small magnitudes staying small.
+     *
+     * @param theValue the signed value.
+     * @return the unsigned value.
+     */
+    static long zigzag(final int theValue) {
+        return (theValue << 1 ^ theValue >> (Integer.SIZE - 1)) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Reverses zigzag.
+     *
+     * @param theValue the unsigned value.
+     * @return the signed value.
+     */
+    static int unzigzag(final long theValue) {
+        final int value = (int) theValue;
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    /**
+     * Returns the kind of a generator.
+     *
+     * @param theGenerator the generator.
+     * @return UNIFORM or BAG.
+     * @throws IllegalArgumentException if the generator cannot be recorded.
+     */
+    static int kindOf(final PieceGenerator theGenerator) {
+        final int result;
+        if (theGenerator instanceof UniformPieceGenerator) {
+            result = UNIFORM;
+        } else if (theGenerator instanceof BagPieceGenerator) {
+            result = BAG;
+        } else {
+            throw new IllegalArgumentException("Cannot record pieces of " + theGenerator);
+        }
+        return result;
+    }
+
+    /**
+     * Creates a generator.
+     *
+     * @param theKind UNIFORM or BAG.
+     * @param theSeed the seed.
+     * @param thePosition the position.
+     * @return the generator.
+     * @throws IOException if the kind is unknown.
+     */
+    static PieceGenerator createGenerator(final int theKind, final long theSeed,
+                                          final long thePosition) throws IOException {
+        final PieceGenerator result;
+        if (theKind == UNIFORM) {
+            result = new UniformPieceGenerator(theSeed);
+        } else if (theKind == BAG) {
+            result = new BagPieceGenerator(theSeed);
+        } else {
+            throw new IOException("Unknown piece generator: " + theKind);
+        }
+        result.setPosition(thePosition);
+        return result;
+    }
+}
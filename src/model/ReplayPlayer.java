@@ -0,0 +1,289 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Plays back a replay written by a ReplayRecorder on a new Board, without a GUI.
+ *
+ * The Board is created from the replay header and the recorded actions are
+ * applied to it one by one, as fast as they can be read. Listeners added to
+ * the Board before the first action see the whole game. Keyframes are skipped.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class ReplayPlayer implements Closeable {
+
+    /**
+     * The BoardAction values, cached to avoid cloning the values array.
+     */
+    private static final BoardAction[] ACTIONS = BoardAction.values();
+
+    /**
+     * The longest varint of a record.
+     */
+    private static final int MAX_RECORD_BYTES = 10;
+
+    /**
+     * The input of the replay.
+     */
+    private final DataInputStream myIn;
+
+    /**
+     * The Board the replay is played on.
+     */
+    private final Board myBoard;
+
+    /**
+     * The tick of the last played action.
+     */
+    private long myTick;
+
+    /**
+     * The last played action, or null.
+     */
+    private BoardAction myAction;
+
+    /**
+     * The number of played actions.
+     */
+    private long myActions;
+
+    /**
+     * Whether the end of the records was reached.
+     */
+    private boolean myEnded;
+
+    /**
+     * Reads the header of a replay and starts its game on a new Board.
+     *
+     * @param theIn the input of the replay; closed when the player is closed.
+     * @throws IOException if the input fails or is not a replay.
+     */
+    public ReplayPlayer(final InputStream theIn) throws IOException {
+        myIn = new DataInputStream(new BufferedInputStream(theIn));
+        myBoard = readHeader(myIn);
+    }
+
+    /**
+     * Continues playing records on a Board that already holds the game up to a tick.
+     *
+     * @param theIn the input, positioned at a record.
+     * @param theBoard the Board.
+     * @param theTick the tick of the previous record.
+     */
+    ReplayPlayer(final DataInputStream theIn, final Board theBoard, final long theTick) {
+        myIn = theIn;
+        myBoard = theBoard;
+        myTick = theTick;
+    }
+
+    /**
+     * Reads the header of a replay and starts its game on a new Board.
+     *
+     * @param theIn the input, positioned at the start of the replay.
+     * @return the Board.
+     * @throws IOException if the input fails or is not a replay.
+     */
+    static Board readHeader(final DataInputStream theIn) throws IOException {
+        if (theIn.readInt() != ReplayFormat.MAGIC) {
+            throw new IOException("Not a replay");
+        }
+        final int version = theIn.readUnsignedByte();
+        if (version < 1 || version > ReplayFormat.VERSION) {
+            throw new IOException("Unsupported replay version: " + version);
+        }
+        final long width = ReplayFormat.readVarint(theIn);
+        final long height = ReplayFormat.readVarint(theIn);
+        if (width > Integer.SIZE || height > ReplayFormat.MAX_HEIGHT
+            || width * height > ReplayFormat.MAX_CELLS) {
+            throw new IOException("Invalid board size: " + width + " x " + height);
+        }
+        final int kind = theIn.readUnsignedByte();
+        final long seed = theIn.readLong();
+        final long position = ReplayFormat.readVarint(theIn);
+        final Board result;
+        try {
+            result = new Board((int) width, (int) height);
+        } catch (final IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        final PieceGenerator generator = ReplayFormat.createGenerator(kind, seed, position);
+        result.setPieceGenerator(generator);
+        generator.setPosition(position);
+        result.newGame();
+        return result;
+    }
+
+    /**
+     * Reads the next action and applies it to the Board.
+     *
+     * @return false if the replay has ended.
+     * @throws IOException if the input fails or is corrupt.
+     */
+    public boolean next() throws IOException {
+        return step(Long.MAX_VALUE);
+    }
+
+    /**
+     * Plays every action up to and including a tick.
+     *
+     * @param theTick the tick.
+     * @return false if the replay has ended.
+     * @throws IOException if the input fails or is corrupt.
+     */
+    public boolean playTo(final long theTick) throws IOException {
+        boolean playing = true;
+        while (playing) {
+            playing = step(theTick);
+        }
+        return !myEnded;
+    }
+
+    /**
+     * Plays the next action unless it is after a tick, skipping keyframes.
+     * A record after the tick is left unread.
+     *
+     * @param theTick the tick.
+     * @return true if an action was played.
+     * @throws IOException if the input fails or is corrupt.
+     */
+    private boolean step(final long theTick) throws IOException {
+        boolean result = false;
+        boolean reading = !myEnded;
+        while (reading) {
+            myIn.mark(MAX_RECORD_BYTES);
+            final int first = myIn.read();
+            if (first < 0) {
+                myEnded = true;
+                reading = false;
+            } else {
+                final long record = ReplayFormat.readVarint(myIn, first);
+                final long tick = myTick + (record >>> ReplayFormat.ACTION_BITS);
+                final int code = (int) (record & ReplayFormat.ACTION_MASK);
+                if (tick > theTick) {
+                    myIn.reset();
+                    reading = false;
+                } else if (code == ReplayFormat.ESCAPE) {
+                    myTick = tick;
+                    skipEscaped();
+                    reading = !myEnded;
+                } else {
+                    myTick = tick;
+                    myAction = ACTIONS[code];
+                    myActions++;
+                    myAction.applyTo(myBoard);
+                    result = true;
+                    reading = false;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Skips an escaped record after its varint.
+     *
+     * @throws IOException if the input fails or is corrupt.
+     */
+    private void skipEscaped() throws IOException {
+        final int kind = myIn.readUnsignedByte();
+        if (kind == ReplayFormat.KEYFRAME) {
+            final long length = ReplayFormat.readVarint(myIn);
+            long skipped = 0;
+            while (skipped < length) {
+                myIn.readByte();
+                skipped++;
+            }
+        } else if (kind == ReplayFormat.INDEX) {
+            myEnded = true;
+        } else {
+            throw new IOException("Unknown record kind: " + kind);
+        }
+    }
+
+    /**
+     * Plays the rest of the replay.
+     *
+     * @return the Board in its final state.
+     * @throws IOException if the input fails or is corrupt.
+     */
+    public Board playToEnd() throws IOException {
+        boolean playing = true;
+        while (playing) {
+            playing = next();
+        }
+        return myBoard;
+    }
+
+    /**
+     * Returns the Board the replay is played on.
+     *
+     * @return the Board.
+     */
+    public Board getBoard() {
+        return myBoard;
+    }
+
+    /**
+     * Returns the tick of the last played action.
+     *
+     * @return the tick, or 0 before the first action.
+     */
+    public long getTick() {
+        return myTick;
+    }
+
+    /**
+     * Returns the last played action.
+     *
+     * @return the action, or null before the first action.
+     */
+    public BoardAction getAction() {
+        return myAction;
+    }
+
+    /**
+     * Returns the number of played actions.
+     *
+     * @return the number of actions.
+     */
+    public long getActionCount() {
+        return myActions;
+    }
+
+    @Override
+    public void close() throws IOException {
+        myIn.close();
+    }
+
+    /**
+     * Plays replay files and prints each final board.
+     *
+     * @param theArgs the replay files.
+     * @throws IOException if a replay cannot be read.
+     */
+    public static void main(final String[] theArgs) throws IOException {
+        for (final String file : theArgs) {
+            try (ReplayPlayer player = new ReplayPlayer(new FileInputStream(file))) {
+                final long start = System.nanoTime();
+                final Board board = player.playToEnd();
+                final long micros = (System.nanoTime() - start) / 1000;
+                System.out.println(file + ": " + player.getActionCount() + " actions, "
+                                   + player.getTick() + " ticks, " + micros + " us");
+                System.out.println(board);
+            }
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Records a game on a Board as a compact binary replay.
+ *
+ * The replay holds the seed and position of the Board's PieceGenerator and
+ * one record per action, so it is usually one or two bytes per action. The
+ * actions are applied to the Board through the recorder, which keeps the
+ * replay and the Board in step. The format is described in ReplayFormat;
+ * a ReplayPlayer plays the replay back.
+ *
+ * A recorder can also write a keyframe, a packed snapshot of the game,
+ * every so many ticks. Closing the recorder then writes an index of the
+ * keyframes, which lets a ReplaySeeker jump to any tick of a long replay.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class ReplayRecorder implements Closeable {
+
+    /**
+     * The output of the replay.
+     */
+    private final DataOutputStream myOut;
+
+    /**
+     * The Board being recorded.
+     */
+    private final Board myBoard;
+
+    /**
+     * The tick of the last record.
+     */
+    private long myTick;
+
+    /**
+     * The number of recorded actions.
+     */
+    private long myActions;
+
+    /**
+     * Ticks between keyframes; 0 writes no keyframes.
+     */
+    private final long myKeyframeInterval;
+
+    /**
+     * The tick of the last keyframe.
+     */
+    private long myKeyframeTick;
+
+    /**
+     * The ticks of the keyframes.
+     */
+    private long[] myKeyframeTicks = new long[0];
+
+    /**
+     * The byte offsets of the keyframe records.
+     */
+    private long[] myKeyframeOffsets = new long[0];
+
+    /**
+     * The number of keyframes.
+     */
+    private int myKeyframes;
+
+    /**
+     * Starts a new game on a Board and records it without keyframes.
+     * The Board's pieces must come from a UniformPieceGenerator or a
+     * BagPieceGenerator, not from a non random sequence.
+     *
+     * @param theOut the output of the replay; closed when the recorder is closed.
+     * @param theBoard the Board.
+     * @throws IOException if the output fails.
+     */
+    public ReplayRecorder(final OutputStream theOut, final Board theBoard)
+        throws IOException {
+        this(theOut, theBoard, 0);
+    }
+
+    /**
+     * Starts a new game on a Board and records it with keyframes.
+     * The Board's pieces must come from a UniformPieceGenerator or a
+     * BagPieceGenerator, not from a non random sequence.
+     *
+     * @param theOut the output of the replay; closed when the recorder is closed.
+     * @param theBoard the Board.
+     * @param theKeyframeInterval the minimum number of ticks between keyframes;
+     *        0 writes no keyframes.
+     * @throws IOException if the output fails.
+     */
+    public ReplayRecorder(final OutputStream theOut, final Board theBoard,
+                          final long theKeyframeInterval) throws IOException {
+        if (theKeyframeInterval < 0) {
+            throw new IllegalArgumentException("Invalid keyframe interval: "
+                                               + theKeyframeInterval);
+        }
+        if (theBoard.hasPieceSequence()) {
+            throw new IllegalArgumentException("Cannot record a non random piece sequence");
+        }
+        if (theBoard.getHeight() > ReplayFormat.MAX_HEIGHT
+            || theBoard.getWidth() * theBoard.getHeight() > ReplayFormat.MAX_CELLS) {
+            throw new IllegalArgumentException("Cannot record a board of "
+                                               + theBoard.getWidth() + " x "
+                                               + theBoard.getHeight());
+        }
+        final PieceGenerator generator = theBoard.getPieceGenerator();
+        final int kind = ReplayFormat.kindOf(generator);
+        myOut = new DataOutputStream(new BufferedOutputStream(theOut));
+        myBoard = theBoard;
+        myKeyframeInterval = theKeyframeInterval;
+        myOut.writeInt(ReplayFormat.MAGIC);
+        myOut.writeByte(ReplayFormat.VERSION);
+        ReplayFormat.writeVarint(myOut, theBoard.getWidth());
+        ReplayFormat.writeVarint(myOut, theBoard.getHeight());
+        myOut.writeByte(kind);
+        myOut.writeLong(generator.getSeed());
+        ReplayFormat.writeVarint(myOut, generator.getPosition());
+        theBoard.newGame();
+    }
+
+    /**
+     * Applies an action to the Board and records it.
+     *
+     * @param theTick the tick of the action; not before the tick of the previous action.
+     * @param theAction the action.
+     * @throws IOException if the output fails.
+     */
+    public void apply(final long theTick, final BoardAction theAction) throws IOException {
+        if (theTick < myTick) {
+            throw new IllegalArgumentException("Tick " + theTick + " is before tick "
+                                               + myTick);
+        }
+        if (myKeyframeInterval > 0 && theTick - myKeyframeTick >= myKeyframeInterval) {
+            writeKeyframe(theTick);
+        }
+        ReplayFormat.writeVarint(myOut, (theTick - myTick) << ReplayFormat.ACTION_BITS
+                                        | theAction.ordinal());
+        myTick = theTick;
+        myActions++;
+        theAction.applyTo(myBoard);
+    }
+
+    /**
+     * Returns the Board being recorded.
+     *
+     * @return the Board.
+     */
+    public Board getBoard() {
+        return myBoard;
+    }
+
+    /**
+     * Returns the number of recorded actions.
+     *
+     * @return the number of actions.
+     */
+    public long getActionCount() {
+        return myActions;
+    }
+
+    /**
+     * Writes buffered records to the output.
+     *
+     * @throws IOException if the output fails.
+     */
+    public void flush() throws IOException {
+        myOut.flush();
+    }
+
+    /**
+     * Writes the keyframe index, if keyframes were written, and closes the output.
+     *
+     * @throws IOException if the output fails.
+     */
+    @Override
+    public void close() throws IOException {
+        if (myKeyframeInterval > 0) {
+            final long offset = myOut.size();
+            ReplayFormat.writeVarint(myOut, ReplayFormat.ESCAPE);
+            myOut.writeByte(ReplayFormat.INDEX);
+            ReplayFormat.writeVarint(myOut, myKeyframes);
+            long tick = 0;
+            long keyframeOffset = 0;
+            for (int i = 0; i < myKeyframes; i++) {
+                ReplayFormat.writeVarint(myOut, myKeyframeTicks[i] - tick);
+                ReplayFormat.writeVarint(myOut, myKeyframeOffsets[i] - keyframeOffset);
+                tick = myKeyframeTicks[i];
+                keyframeOffset = myKeyframeOffsets[i];
+            }
+            myOut.writeLong(offset);
+            myOut.writeInt(ReplayFormat.TRAILER_MAGIC);
+        }
+        myOut.close();
+    }
+
+    /**
+     * Writes a keyframe holding the game before the actions of a tick.
+     *
+     * @param theTick the tick.
+     * @throws IOException if the output fails.
+     */
+    private void writeKeyframe(final long theTick) throws IOException {
+        if (myKeyframes == myKeyframeTicks.length) {
+            myKeyframeTicks = Arrays.copyOf(myKeyframeTicks, myKeyframes * 2 + 1);
+            myKeyframeOffsets = Arrays.copyOf(myKeyframeOffsets, myKeyframes * 2 + 1);
+        }
+        myKeyframeTicks[myKeyframes] = theTick;
+        myKeyframeOffsets[myKeyframes] = myOut.size();
+        myKeyframes++;
+        ReplayFormat.writeVarint(myOut, (theTick - myTick) << ReplayFormat.ACTION_BITS
+                                        | ReplayFormat.ESCAPE);
+        ReplayFormat.writeKeyframe(myOut, myBoard);
+        myTick = theTick;
+        myKeyframeTick = theTick;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Seeks to any tick of a replay file written by a ReplayRecorder with keyframes.
+ *
+ * The keyframe index is read from the end of the file when the seeker is
+ * opened. A seek restores the last keyframe at or before the tick on a new
+ * Board and plays the actions from there up to the tick, so its cost depends
+ * on the keyframe interval rather than on the length of the replay. A replay
+ * without an index is played from its start.
+ *
+ * Every seek reads the file at its own offsets, so the players returned by
+ * seek are independent of each other and of the seeker.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class ReplaySeeker implements Closeable {
+
+    /**
+     * The replay file.
+     */
+    private final FileChannel myChannel;
+
+    /**
+     * The ticks of the keyframes, ascending.
+     */
+    private final long[] myTicks;
+
+    /**
+     * The byte offsets of the keyframe records.
+     */
+    private final long[] myOffsets;
+
+    /**
+     * Opens a replay file and reads its keyframe index.
+     *
+     * @param thePath the replay file.
+     * @throws IOException if the file cannot be read or is not a replay.
+     */
+    public ReplaySeeker(final Path thePath) throws IOException {
+        myChannel = FileChannel.open(thePath, StandardOpenOption.READ);
+        try {
+            final long offset = readIndexOffset();
+            if (offset < 0) {
+                myTicks = new long[0];
+                myOffsets = new long[0];
+            } else {
+                final DataInputStream in = open(offset);
+                if (ReplayFormat.readVarint(in) != ReplayFormat.ESCAPE
+                    || in.readUnsignedByte() != ReplayFormat.INDEX) {
+                    throw new IOException("Invalid keyframe index");
+                }
+                final long count = ReplayFormat.readVarint(in);
+                if (count > offset) {
+                    throw new IOException("Invalid keyframe count: " + count);
+                }
+                myTicks = new long[(int) count];
+                myOffsets = new long[(int) count];
+                long tick = 0;
+                long keyframeOffset = 0;
+                for (int i = 0; i < count; i++) {
+                    tick += ReplayFormat.readVarint(in);
+                    keyframeOffset += ReplayFormat.readVarint(in);
+                    if (keyframeOffset >= offset) {
+                        throw new IOException("Invalid keyframe offset: " + keyframeOffset);
+                    }
+                    myTicks[i] = tick;
+                    myOffsets[i] = keyframeOffset;
+                }
+            }
+            // fail on a file that is not a replay when it is opened
+            ReplayPlayer.readHeader(open(0));
+        } catch (final IOException e) {
+            myChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of keyframes in the index.
+     *
+     * @return the number of keyframes.
+     */
+    public int getKeyframeCount() {
+        return myTicks.length;
+    }
+
+    /**
+     * Returns a player whose Board holds the game after every action up to
+     * and including a tick. The player can go on playing from there.
+     *
+     * @param theTick the tick.
+     * @return the player; closing it does not close the seeker.
+     * @throws IOException if the file cannot be read or is corrupt.
+     */
+    public ReplayPlayer seek(final long theTick) throws IOException {
+        final DataInputStream header = open(0);
+        final Board board = ReplayPlayer.readHeader(header);
+        final int keyframe = findKeyframe(theTick);
+        final ReplayPlayer result;
+        if (keyframe < 0) {
+            result = new ReplayPlayer(header, board, 0);
+        } else {
+            final DataInputStream in = open(myOffsets[keyframe]);
+            final long record = ReplayFormat.readVarint(in);
+            if ((record & ReplayFormat.ACTION_MASK) != ReplayFormat.ESCAPE
+                || in.readUnsignedByte() != ReplayFormat.KEYFRAME) {
+                throw new IOException("Invalid keyframe at offset " + myOffsets[keyframe]);
+            }
+            ReplayFormat.readKeyframe(in, board);
+            result = new ReplayPlayer(in, board, myTicks[keyframe]);
+        }
+        result.playTo(theTick);
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        myChannel.close();
+    }
+
+    /**
+     * Returns the last keyframe at or before a tick.
+     *
+     * @param theTick the tick.
+     * @return the keyframe index, or -1 if every keyframe is after the tick.
+     */
+    private int findKeyframe(final long theTick) {
+        int low = 0;
+        int high = myTicks.length;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (myTicks[middle] <= theTick) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Reads the trailer at the end of the file.
+     *
+     * @return the offset of the index record, or -1 if the file has no index.
+     * @throws IOException if the file cannot be read.
+     */
+    private long readIndexOffset() throws IOException {
+        final long size = myChannel.size();
+        long result = -1;
+        if (size >= ReplayFormat.TRAILER_LENGTH) {
+            final ByteBuffer trailer = ByteBuffer.allocate(ReplayFormat.TRAILER_LENGTH);
+            readFully(trailer, size - ReplayFormat.TRAILER_LENGTH);
+            final long offset = trailer.getLong(0);
+            if (trailer.getInt(Long.BYTES) == ReplayFormat.TRAILER_MAGIC
+                && offset >= 0 && offset < size - ReplayFormat.TRAILER_LENGTH) {
+                result = offset;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Fills a buffer from the file.
+     *
+     * @param theBuffer the buffer.
+     * @param thePosition the file position to read from.
+     * @throws IOException if the file cannot be read or ends first.
+     */
+    private void readFully(final ByteBuffer theBuffer, final long thePosition)
+        throws IOException {
+        long position = thePosition;
+        while (theBuffer.hasRemaining()) {
+            final int read = myChannel.read(theBuffer, position);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Returns a buffered input reading the file from an offset.
+     *
+     * @param theOffset the offset.
+     * @return the input.
+     */
+    private DataInputStream open(final long theOffset) {
+        return new DataInputStream(new BufferedInputStream(new ChannelInput(myChannel,
+                                                                            theOffset)));
+    }
+
+    /**
+     * An input reading a FileChannel from its own position. The channel's
+     * position is not used and closing the input does not close the channel.
+     */
+    private static final class ChannelInput extends InputStream {
+
+        /**
+         * The channel.
+         */
+        private final FileChannel myChannel;
+
+        /**
+         * The position of the next byte.
+         */
+        private long myPosition;
+
+        /**
+         * Constructor.
+         *
+         * @param theChannel the channel.
+         * @param thePosition the position of the first byte.
+         */
+        ChannelInput(final FileChannel theChannel, final long thePosition) {
+            myChannel = theChannel;
+            myPosition = thePosition;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] one = new byte[1];
+            int result = read(one, 0, 1);
+            if (result > 0) {
+                result = one[0] & 0xFF;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(final byte[] theBytes, final int theOffset, final int theLength)
+            throws IOException {
+            final int result = myChannel.read(ByteBuffer.wrap(theBytes, theOffset, theLength),
+                                              myPosition);
+            if (result > 0) {
+                myPosition += result;
+            }
+            return result;
+        }
+    }
+}
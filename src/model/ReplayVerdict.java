@@ -0,0 +1,200 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * The outcome of checking one replay against its claimed score and lines.
+ * A ReplayVerdict is immutable.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class ReplayVerdict {
+
+    /**
+     * The kinds of verdict.
+     */
+    public enum Status {
+
+        /**
+         * The replay reproduces the claimed score and lines.
+         */
+        VALID,
+
+        /**
+         * The replay does not reproduce the claimed score or lines.
+         */
+        MISMATCH,
+
+        /**
+         * The replay has no claim to check.
+         */
+        UNCLAIMED,
+
+        /**
+         * The replay or its claim cannot be read.
+         */
+        CORRUPT
+    }
+
+    /**
+     * The name of the replay file.
+     */
+    private final String myName;
+
+    /**
+     * The kind of verdict.
+     */
+    private final Status myStatus;
+
+    /**
+     * The claimed score, or -1.
+     */
+    private final int myClaimedScore;
+
+    /**
+     * The claimed number of lines, or -1.
+     */
+    private final int myClaimedLines;
+
+    /**
+     * The score of the simulated game, or -1.
+     */
+    private final int myScore;
+
+    /**
+     * The number of lines of the simulated game, or -1.
+     */
+    private final int myLines;
+
+    /**
+     * The number of simulated actions.
+     */
+    private final long myActions;
+
+    /**
+     * Why the replay could not be read, or null.
+     */
+    private final String myError;
+
+    /**
+     * Constructs a ReplayVerdict.
+     *
+     * @param theName the name of the replay file.
+     * @param theStatus the kind of verdict.
+     * @param theClaimedScore the claimed score, or -1.
+     * @param theClaimedLines the claimed number of lines, or -1.
+     * @param theScore the score of the simulated game, or -1.
+     * @param theLines the number of lines of the simulated game, or -1.
+     * @param theActions the number of simulated actions.
+     * @param theError why the replay could not be read, or null.
+     */
+    public ReplayVerdict(final String theName, final Status theStatus,
+                         final int theClaimedScore, final int theClaimedLines,
+                         final int theScore, final int theLines, final long theActions,
+                         final String theError) {
+        myName = theName;
+        myStatus = theStatus;
+        myClaimedScore = theClaimedScore;
+        myClaimedLines = theClaimedLines;
+        myScore = theScore;
+        myLines = theLines;
+        myActions = theActions;
+        myError = theError;
+    }
+
+    /**
+     * Returns the name of the replay file.
+     *
+     * @return the name.
+     */
+    public String getName() {
+        return myName;
+    }
+
+    /**
+     * Returns the kind of verdict.
+     *
+     * @return the Status.
+     */
+    public Status getStatus() {
+        return myStatus;
+    }
+
+    /**
+     * Returns the claimed score.
+     *
+     * @return the claimed score, or -1 if there is no claim.
+     */
+    public int getClaimedScore() {
+        return myClaimedScore;
+    }
+
+    /**
+     * Returns the claimed number of lines.
+     *
+     * @return the claimed lines, or -1 if there is no claim.
+     */
+    public int getClaimedLines() {
+        return myClaimedLines;
+    }
+
+    /**
+     * Returns the score of the simulated game.
+     *
+     * @return the score, or -1 if the replay could not be read.
+     */
+    public int getScore() {
+        return myScore;
+    }
+
+    /**
+     * Returns the number of lines of the simulated game.
+     *
+     * @return the lines, or -1 if the replay could not be read.
+     */
+    public int getLines() {
+        return myLines;
+    }
+
+    /**
+     * Returns the number of simulated actions.
+     *
+     * @return the number of actions.
+     */
+    public long getActions() {
+        return myActions;
+    }
+
+    /**
+     * Returns why the replay could not be read.
+     *
+     * @return the error, or null.
+     */
+    public String getError() {
+        return myError;
+    }
+
+    /**
+     * Returns the verdict as one tab separated line: name, status, claimed
+     * score, score, claimed lines, lines, actions and the error if there is one.
+     *
+     * @return the verdict line.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder();
+        result.append(myName).append('\t').append(myStatus)
+              .append('\t').append(myClaimedScore).append('\t').append(myScore)
+              .append('\t').append(myClaimedLines).append('\t').append(myLines)
+              .append('\t').append(myActions);
+        if (myError != null) {
+            result.append('\t').append(myError);
+        }
+        return result.toString();
+    }
+}
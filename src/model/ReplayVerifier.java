@@ -0,0 +1,328 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Checks submitted replays by playing them headlessly and comparing the score
+ * and lines of the simulated game with the claimed ones.
+ *
+ * A submission is a replay file ending in REPLAY_EXTENSION written by a
+ * ReplayRecorder, next to a claim file with the same name ending in
+ * CLAIM_EXTENSION that holds the claimed score and lines as two numbers.
+ * Games are scored by a ScoreKeeper with the rules of the GUI.
+ *
+ * The replays of a directory are read as the directory is listed and played
+ * on a fixed number of threads. At most two replays per thread are waiting
+ * or being played at a time, so memory use does not depend on the number of
+ * replays. The verdicts are written as they are reached, one line per replay
+ * in the format of ReplayVerdict.toString.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class ReplayVerifier {
+
+    /**
+     * The file name extension of replay files.
+     */
+    public static final String REPLAY_EXTENSION = ".trpl";
+
+    /**
+     * The file name extension of claim files.
+     */
+    public static final String CLAIM_EXTENSION = ".claim";
+
+    /**
+     * Replays waiting or being played per thread.
+     */
+    private static final int REPLAYS_PER_THREAD = 2;
+
+    /**
+     * The number of threads playing replays.
+     */
+    private final int myThreads;
+
+    /**
+     * Constructs a ReplayVerifier using one thread per processor.
+     */
+    public ReplayVerifier() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a ReplayVerifier.
+     *
+     * @param theThreads the number of threads playing replays.
+     */
+    public ReplayVerifier(final int theThreads) {
+        if (theThreads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + theThreads);
+        }
+        myThreads = theThreads;
+    }
+
+    /**
+     * Checks one replay on the calling thread. A replay that cannot be read
+     * or simulated gets a CORRUPT verdict rather than an exception.
+     *
+     * @param theReplay the replay file.
+     * @return the verdict.
+     */
+    public ReplayVerdict verify(final Path theReplay) {
+        final String name = theReplay.getFileName().toString();
+        final ScoreKeeper score = new ScoreKeeper();
+        int[] claim = null;
+        long actions = 0;
+        ReplayVerdict result;
+        try {
+            claim = readClaim(theReplay);
+            try (InputStream in = Files.newInputStream(theReplay)) {
+                final ReplayPlayer player = new ReplayPlayer(in);
+                player.getBoard().addPieceFrozenListener(score);
+                player.getBoard().addGameOverListener(score);
+                player.playToEnd();
+                actions = player.getActionCount();
+            }
+            ReplayVerdict.Status status = ReplayVerdict.Status.UNCLAIMED;
+            if (claim == null) {
+                claim = new int[] {-1, -1};
+            } else if (claim[0] == score.getScore() && claim[1] == score.getLines()) {
+                status = ReplayVerdict.Status.VALID;
+            } else {
+                status = ReplayVerdict.Status.MISMATCH;
+            }
+            result = new ReplayVerdict(name, status, claim[0], claim[1],
+                                       score.getScore(), score.getLines(), actions, null);
+        } catch (final IOException e) {
+            result = corrupt(name, claim, actions, e);
+        } catch (final RuntimeException e) {
+            // a replay that parses but cannot be simulated is corrupt as well
+            result = corrupt(name, claim, actions, e);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the verdict of a replay that could not be checked.
+     *
+     * @param theName the name of the replay file.
+     * @param theClaim the claimed score and lines, or null.
+     * @param theActions the number of actions simulated before the failure.
+     * @param theError the failure.
+     * @return the CORRUPT verdict.
+     */
+    private static ReplayVerdict corrupt(final String theName, final int[] theClaim,
+                                         final long theActions, final Exception theError) {
+        int claimedScore = -1;
+        int claimedLines = -1;
+        if (theClaim != null) {
+            claimedScore = theClaim[0];
+            claimedLines = theClaim[1];
+        }
+        return new ReplayVerdict(theName, ReplayVerdict.Status.CORRUPT, claimedScore,
+                                 claimedLines, -1, -1, theActions, String.valueOf(theError));
+    }
+
+    /**
+     * Checks every replay in a directory in parallel.
+     *
+     * @param theDirectory the directory.
+     * @param theVerdicts receives one line per replay in the order the verdicts are reached.
+     * @return the totals of the run.
+     * @throws IOException if the directory cannot be listed or a verdict cannot be written.
+     */
+    public VerificationResult verifyAll(final Path theDirectory, final Appendable theVerdicts)
+        throws IOException {
+        final Run run = new Run(theVerdicts);
+        final ExecutorService executor = Executors.newFixedThreadPool(myThreads);
+        final Semaphore slots = new Semaphore(myThreads * REPLAYS_PER_THREAD);
+        final long start = System.nanoTime();
+        try (DirectoryStream<Path> replays =
+                 Files.newDirectoryStream(theDirectory, "*" + REPLAY_EXTENSION)) {
+            for (final Path replay : replays) {
+                slots.acquireUninterruptibly();
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        ReplayVerdict verdict = null;
+                        try {
+                            verdict = verify(replay);
+                        } finally {
+                            if (verdict == null) {
+                                verdict = new ReplayVerdict(replay.getFileName().toString(),
+                                                            ReplayVerdict.Status.CORRUPT,
+                                                            -1, -1, -1, -1, 0,
+                                                            "Simulation failed");
+                            }
+                            run.record(verdict, sizeOf(replay));
+                            slots.release();
+                        }
+                    }
+                });
+            }
+        } finally {
+            // every slot is free once every replay has a verdict
+            slots.acquireUninterruptibly(myThreads * REPLAYS_PER_THREAD);
+            executor.shutdown();
+        }
+        return run.finish(System.nanoTime() - start);
+    }
+
+    /**
+     * Reads the claim of a replay.
+     *
+     * @param theReplay the replay file.
+     * @return the claimed score and lines, or null if there is no claim file.
+     * @throws IOException if the claim file cannot be read or is malformed.
+     */
+    private static int[] readClaim(final Path theReplay) throws IOException {
+        final String name = theReplay.getFileName().toString();
+        String base = name;
+        if (name.endsWith(REPLAY_EXTENSION)) {
+            base = name.substring(0, name.length() - REPLAY_EXTENSION.length());
+        }
+        int[] result = null;
+        try {
+            final Path claim = theReplay.resolveSibling(base + CLAIM_EXTENSION);
+            final String text = new String(Files.readAllBytes(claim),
+                                           StandardCharsets.US_ASCII);
+            final String[] fields = text.trim().split("\\s+");
+            if (fields.length != 2) {
+                throw new IOException("Malformed claim: expected a score and lines");
+            }
+            result = new int[] {Integer.parseInt(fields[0]), Integer.parseInt(fields[1])};
+        } catch (final NoSuchFileException e) {
+            result = null;
+        } catch (final NumberFormatException e) {
+            throw new IOException("Malformed claim: " + e.getMessage(), e);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the size of a file.
+     *
+     * @param theFile the file.
+     * @return the size in bytes, or 0 if it cannot be read.
+     */
+    private static long sizeOf(final Path theFile) {
+        long result = 0;
+        try {
+            result = Files.size(theFile);
+        } catch (final IOException e) {
+            result = 0;
+        }
+        return result;
+    }
+
+    /**
+     * Checks the replays of a directory and prints the verdicts and the totals.
+     *
+     * @param theArgs the directory and an optional number of threads.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public static void main(final String[] theArgs) throws IOException {
+        if (theArgs.length == 0) {
+            System.err.println("Usage: ReplayVerifier directory [threads]");
+        } else {
+            ReplayVerifier verifier = new ReplayVerifier();
+            if (theArgs.length > 1) {
+                verifier = new ReplayVerifier(Integer.parseInt(theArgs[1]));
+            }
+            final VerificationResult result = verifier.verifyAll(Paths.get(theArgs[0]),
+                                                                 System.out);
+            System.out.flush();
+            System.err.println(result);
+        }
+    }
+
+    /**
+     * The verdicts and totals of one verifyAll call, shared by its threads.
+     */
+    private static final class Run {
+
+        /**
+         * Receives the verdict lines.
+         */
+        private final Appendable myVerdicts;
+
+        /**
+         * The number of replays of each ReplayVerdict.Status.
+         */
+        private final long[] myCounts = new long[ReplayVerdict.Status.values().length];
+
+        /**
+         * The number of simulated actions.
+         */
+        private long myActions;
+
+        /**
+         * The number of replay bytes.
+         */
+        private long myBytes;
+
+        /**
+         * The first failure to write a verdict, or null.
+         */
+        private IOException myFailure;
+
+        /**
+         * Constructor.
+         *
+         * @param theVerdicts receives the verdict lines.
+         */
+        Run(final Appendable theVerdicts) {
+            myVerdicts = theVerdicts;
+        }
+
+        /**
+         * Writes a verdict and adds it to the totals.
+         *
+         * @param theVerdict the verdict.
+         * @param theBytes the size of the replay.
+         */
+        synchronized void record(final ReplayVerdict theVerdict, final long theBytes) {
+            myCounts[theVerdict.getStatus().ordinal()]++;
+            myActions += theVerdict.getActions();
+            myBytes += theBytes;
+            if (myFailure == null) {
+                try {
+                    myVerdicts.append(theVerdict.toString()).append(System.lineSeparator());
+                } catch (final IOException e) {
+                    myFailure = e;
+                }
+            }
+        }
+
+        /**
+         * Returns the totals.
+         *
+         * @param theElapsedNanos the wall clock time of the run.
+         * @return the totals.
+         * @throws IOException if a verdict could not be written.
+         */
+        synchronized VerificationResult finish(final long theElapsedNanos)
+            throws IOException {
+            if (myFailure != null) {
+                throw myFailure;
+            }
+            return new VerificationResult(myCounts, myActions, myBytes, theElapsedNanos);
+        }
+    }
+}
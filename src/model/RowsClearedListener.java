@@ -0,0 +1,23 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * Listens for complete rows being cleared from a Board.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public interface RowsClearedListener {
+
+    /**
+     * Called after a frozen piece completed and cleared rows.
+     *
+     * @param theCount the number of rows cleared at once, from 1 to 4.
+     */
+    void rowsCleared(int theCount);
+}
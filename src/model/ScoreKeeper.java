@@ -0,0 +1,172 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * Keeps the score, lines, level and gravity delay of a game.
+ *
+ * The rules are those of the GUI: 4 points for each piece frozen without
+ * ending the game, and 40, 100, 300 or 1200 points times the current level
+ * for clearing 1, 2, 3 or 4 lines at once. The level starts at 1 and rises
+ * every 5 lines. The gravity delay starts at 1000 milliseconds and shrinks by
+ * 100 milliseconds per level up to level 10.
+ *
+ * A ScoreKeeper added to a Board as a PieceFrozenListener and a
+ * GameOverListener scores the pieces that freeze on it; pieceFrozen with the
+ * number of lines scores them without a Board. The counters are
+ * not reset by Board.newGame, so the owner calls reset when a game starts.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class ScoreKeeper implements PieceFrozenListener, GameOverListener {
+
+    /**
+     * Lines required to increase the level.
+     */
+    public static final int LINES_FOR_LEVEL_UP = 5;
+
+    /**
+     * The highest level that shortens the gravity delay.
+     */
+    public static final int MAX_LEVEL = 10;
+
+    /**
+     * Points for freezing a piece without ending the game.
+     */
+    private static final int FREEZE_PTS = 4;
+
+    /**
+     * Points per level for clearing 0, 1, 2, 3 or 4 lines at once.
+     */
+    private static final int[] LINE_PTS = {0, 40, 100, 300, 1200};
+
+    /**
+     * Gravity delay at level 1 in milliseconds: one second per row.
+     */
+    private static final int INITIAL_DELAY = 1000;
+
+    /**
+     * Gravity delay removed per level in milliseconds.
+     */
+    private static final int DELAY_STEP = 100;
+
+    /**
+     * The score.
+     */
+    private int myScore;
+
+    /**
+     * The number of lines cleared.
+     */
+    private int myLines;
+
+    /**
+     * The number of pieces frozen.
+     */
+    private int myPieces;
+
+    /**
+     * Whether the Board reported the end of the game.
+     */
+    private boolean myGameOver;
+
+    /**
+     * Clears the counters for a new game.
+     */
+    public void reset() {
+        myScore = 0;
+        myLines = 0;
+        myPieces = 0;
+        myGameOver = false;
+    }
+
+    /**
+     * Scores a frozen piece.
+     *
+     * @param theLines the number of lines the piece cleared, from 0 to 4.
+     * @param theGameOver whether the piece ended the game.
+     */
+    public void pieceFrozen(final int theLines, final boolean theGameOver) {
+        myPieces++;
+        if (!theGameOver) {
+            myScore += FREEZE_PTS;
+        }
+        myScore += LINE_PTS[theLines] * getLevel();
+        myLines += theLines;
+    }
+
+    /**
+     * Returns the score.
+     *
+     * @return the score.
+     */
+    public int getScore() {
+        return myScore;
+    }
+
+    /**
+     * Returns the number of lines cleared.
+     *
+     * @return the lines.
+     */
+    public int getLines() {
+        return myLines;
+    }
+
+    /**
+     * Returns the number of pieces frozen.
+     *
+     * @return the pieces.
+     */
+    public int getPieces() {
+        return myPieces;
+    }
+
+    /**
+     * Returns the level.
+     *
+     * @return the level, starting at 1.
+     */
+    public int getLevel() {
+        return myLines / LINES_FOR_LEVEL_UP + 1;
+    }
+
+    /**
+     * Returns the number of lines still to clear before the level rises.
+     *
+     * @return the lines to the next level, from 1 to LINES_FOR_LEVEL_UP.
+     */
+    public int getLinesToNextLevel() {
+        return LINES_FOR_LEVEL_UP - myLines % LINES_FOR_LEVEL_UP;
+    }
+
+    /**
+     * Returns the time between two gravity steps at the current level.
+     *
+     * @return the gravity delay in milliseconds.
+     */
+    public int getDelay() {
+        return INITIAL_DELAY - DELAY_STEP * (Math.min(getLevel(), MAX_LEVEL) - 1);
+    }
+
+    /**
+     * Scores a piece that froze on a Board. A piece that ends the game is
+     * reported to gameOver first.
+     *
+     * @param theChange the change.
+     */
+    @Override
+    public void pieceFrozen(final BoardChange theChange) {
+        pieceFrozen(theChange.getClearedRowCount(), myGameOver);
+    }
+
+    @Override
+    public void gameOver() {
+        myGameOver = true;
+    }
+}
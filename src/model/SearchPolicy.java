@@ -0,0 +1,67 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * An InputPolicy that plays the best placement found by a PlacementSearch.
+ *
+ * When a new piece enters the board the policy searches its placements and
+ * then returns the actions of the best one, ending with a drop. The plan is
+ * made for the piece where it entered, so the policy plays best with gravity
+ * disabled.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public class SearchPolicy implements InputPolicy {
+
+    /**
+     * The search choosing the placements.
+     */
+    private final PlacementSearch mySearch;
+
+    /**
+     * The remaining actions of the current plan.
+     */
+    private final Deque<BoardAction> myPlan;
+
+    /**
+     * The piece count of the piece the current plan was made for.
+     */
+    private long myPlannedPiece;
+
+    /**
+     * Constructs a SearchPolicy.
+     *
+     * @param theSearch the search choosing the placements.
+     */
+    public SearchPolicy(final PlacementSearch theSearch) {
+        mySearch = theSearch;
+        myPlan = new ArrayDeque<>();
+        myPlannedPiece = -1;
+    }
+
+    @Override
+    public BoardAction nextAction(final Board theBoard) {
+        if (theBoard.getPieceCount() != myPlannedPiece) {
+            myPlannedPiece = theBoard.getPieceCount();
+            myPlan.clear();
+            final Placement best = mySearch.findBest(theBoard);
+            if (best != null) {
+                myPlan.addAll(best.getActions());
+            }
+        }
+        BoardAction result = myPlan.poll();
+        if (result == null) {
+            result = BoardAction.DROP;
+        }
+        return result;
+    }
+}
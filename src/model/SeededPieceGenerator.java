@@ -0,0 +1,122 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * Base of the PieceGenerators drawing from a SplitMix64 stream.
+ *
+ * The state of the stream starts at the seed, and each draw adds GAMMA to it
+ * and returns a mix of the new state. The state after any number of draws is
+ * thus the seed plus that many increments, which lets a generator jump to any
+ * position in constant time. Replays and saved board states depend on this
+ * stream, so it is implemented here rather than taken from the JDK; it
+ * matches the stream of a SplittableRandom created with the same seed.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+abstract class SeededPieceGenerator implements PieceGenerator {
+
+    /**
+     * The TetrisPiece values, cached to avoid cloning the values array.
+     */
+    static final TetrisPiece[] PIECES = TetrisPiece.values();
+
+    /**
+     * The state increment of each draw.
+     */
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * The first multiplier of the mix function.
+     */
+    private static final long MIX_1 = 0xBF58476D1CE4E5B9L;
+
+    /**
+     * The second multiplier of the mix function.
+     */
+    private static final long MIX_2 = 0x94D049BB133111EBL;
+
+    /**
+     * The first shift of the mix function.
+     */
+    private static final int SHIFT_1 = 30;
+
+    /**
+     * The second shift of the mix function.
+     */
+    private static final int SHIFT_2 = 27;
+
+    /**
+     * The third shift of the mix function.
+     */
+    private static final int SHIFT_3 = 31;
+
+    /**
+     * The seed of the sequence.
+     */
+    private final long mySeed;
+
+    /**
+     * The state of the stream of random draws.
+     */
+    private long myState;
+
+    /**
+     * Constructs a generator at the start of its sequence.
+     *
+     * @param theSeed the seed of the sequence.
+     */
+    SeededPieceGenerator(final long theSeed) {
+        mySeed = theSeed;
+        myState = theSeed;
+    }
+
+    @Override
+    public long getSeed() {
+        return mySeed;
+    }
+
+    /**
+     * Draws a random number.
+     *
+     * @param theBound the bound of the number; at most 2^31 - 1.
+     * @return a number from 0 to theBound - 1.
+     */
+    int nextInt(final int theBound) {
+        myState += GAMMA;
+        return (int) ((mix(myState) >>> Integer.SIZE) * theBound >>> Integer.SIZE);
+    }
+
+    /**
+     * Moves the source of random draws to a position of its stream.
+     *
+     * @param theDraws the number of draws to skip from the start of the stream.
+     */
+    void seek(final long theDraws) {
+        myState = mySeed + theDraws * GAMMA;
+    }
+
+    /**
+     * Mixes the bits of a state into a random number (the Stafford variant 13
+     * finalizer of SplitMix64).
+     *
+     * @param theState the state.
+     * @return the random number.
+     */
+    private static long mix(final long theState) {
+        long result = (theState ^ theState >>> SHIFT_1) * MIX_1;
+        result = (result ^ result >>> SHIFT_2) * MIX_2;
+        return result ^ result >>> SHIFT_3;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(seed " + mySeed + ", position "
+               + getPosition() + ')';
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * Plays Tetris games on a Board without a GUI.
+ *
+ * An InputPolicy chooses every action. Gravity is simulated by stepping the
+ * Board after a fixed number of policy actions. Games are scored by a
+ * ScoreKeeper with the same rules as the GUI.
+ *
+ * The model package does not use AWT or Swing, so simulations run on
+ * headless JVMs.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public class Simulation {
+
+    /**
+     * Default number of policy actions between gravity steps.
+     */
+    private static final int DEFAULT_ACTIONS_PER_STEP = 4;
+
+    /**
+     * Default number of games played by main.
+     */
+    private static final int DEFAULT_GAMES = 1000;
+
+    /**
+     * Width of the simulated boards.
+     */
+    private final int myWidth;
+
+    /**
+     * Height of the simulated boards.
+     */
+    private final int myHeight;
+
+    /**
+     * The policy choosing the actions.
+     */
+    private final InputPolicy myPolicy;
+
+    /**
+     * Number of policy actions between gravity steps; 0 disables gravity.
+     */
+    private final int myActionsPerStep;
+
+    /**
+     * Pieces, lines and score of the current game.
+     */
+    private final ScoreKeeper myScoring = new ScoreKeeper();
+
+    /**
+     * Constructs a Simulation.
+     *
+     * @param theWidth width of the simulated boards.
+     * @param theHeight height of the simulated boards.
+     * @param thePolicy the policy choosing the actions.
+     * @param theActionsPerStep number of policy actions between gravity steps;
+     *        0 disables gravity, in which case the policy must drop or step pieces.
+     */
+    public Simulation(final int theWidth, final int theHeight,
+                      final InputPolicy thePolicy, final int theActionsPerStep) {
+        myWidth = theWidth;
+        myHeight = theHeight;
+        myPolicy = thePolicy;
+        myActionsPerStep = theActionsPerStep;
+    }
+
+    /**
+     * Plays games until each one is over or has frozen a number of pieces.
+     *
+     * @param theGames the number of games to play.
+     * @param thePieceLimit the number of pieces after which a game ends;
+     *        0 plays every game until it is over.
+     * @return the totals of the run.
+     */
+    public SimulationResult run(final int theGames, final int thePieceLimit) {
+        final Board board = new Board(myWidth, myHeight);
+        board.addPieceFrozenListener(myScoring);
+        board.addGameOverListener(myScoring);
+        long pieces = 0;
+        long lines = 0;
+        long totalScore = 0;
+        int bestScore = 0;
+        final long start = System.nanoTime();
+        for (int game = 0; game < theGames; game++) {
+            myScoring.reset();
+            board.newGame();
+            int actions = 0;
+            while (!board.isGameOver()
+                   && (thePieceLimit <= 0 || myScoring.getPieces() < thePieceLimit)) {
+                myPolicy.nextAction(board).applyTo(board);
+                actions++;
+                if (myActionsPerStep > 0 && actions % myActionsPerStep == 0
+                    && !board.isGameOver()) {
+                    board.step();
+                }
+            }
+            pieces += myScoring.getPieces();
+            lines += myScoring.getLines();
+            totalScore += myScoring.getScore();
+            bestScore = Math.max(bestScore, myScoring.getScore());
+        }
+        return new SimulationResult(theGames, pieces, lines, totalScore, bestScore,
+                                    System.nanoTime() - start);
+    }
+
+    /**
+     * Plays random games on a standard board and prints the totals.
+     *
+     * @param theArgs optional number of games and piece limit per game.
+     */
+    public static void main(final String[] theArgs) {
+        int games = DEFAULT_GAMES;
+        int pieceLimit = 0;
+        if (theArgs.length > 0) {
+            games = Integer.parseInt(theArgs[0]);
+        }
+        if (theArgs.length > 1) {
+            pieceLimit = Integer.parseInt(theArgs[1]);
+        }
+        final Board board = new Board();
+        final Simulation simulation = new Simulation(board.getWidth(), board.getHeight(),
+                                                     new RandomPolicy(0),
+                                                     DEFAULT_ACTIONS_PER_STEP);
+        System.out.println(simulation.run(games, pieceLimit));
+    }
+}
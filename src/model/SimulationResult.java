@@ -0,0 +1,161 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * The totals of a headless Simulation run.
+ * A SimulationResult is immutable.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class SimulationResult {
+
+    /**
+     * Nanoseconds in one second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * The number of games played.
+     */
+    private final int myGames;
+
+    /**
+     * The number of pieces frozen in all games.
+     */
+    private final long myPieces;
+
+    /**
+     * The number of lines cleared in all games.
+     */
+    private final long myLines;
+
+    /**
+     * The sum of the scores of all games.
+     */
+    private final long myTotalScore;
+
+    /**
+     * The best score of a single game.
+     */
+    private final int myBestScore;
+
+    /**
+     * The wall clock time of the run in nanoseconds.
+     */
+    private final long myElapsedNanos;
+
+    /**
+     * Constructs a SimulationResult.
+     *
+     * @param theGames the number of games played.
+     * @param thePieces the number of pieces frozen in all games.
+     * @param theLines the number of lines cleared in all games.
+     * @param theTotalScore the sum of the scores of all games.
+     * @param theBestScore the best score of a single game.
+     * @param theElapsedNanos the wall clock time of the run in nanoseconds.
+     */
+    public SimulationResult(final int theGames, final long thePieces, final long theLines,
+                            final long theTotalScore, final int theBestScore,
+                            final long theElapsedNanos) {
+        myGames = theGames;
+        myPieces = thePieces;
+        myLines = theLines;
+        myTotalScore = theTotalScore;
+        myBestScore = theBestScore;
+        myElapsedNanos = theElapsedNanos;
+    }
+
+    /**
+     * Returns the number of games played.
+     *
+     * @return the number of games.
+     */
+    public int getGames() {
+        return myGames;
+    }
+
+    /**
+     * Returns the number of pieces frozen in all games.
+     *
+     * @return the number of pieces.
+     */
+    public long getPieces() {
+        return myPieces;
+    }
+
+    /**
+     * Returns the number of lines cleared in all games.
+     *
+     * @return the number of lines.
+     */
+    public long getLines() {
+        return myLines;
+    }
+
+    /**
+     * Returns the sum of the scores of all games.
+     *
+     * @return the total score.
+     */
+    public long getTotalScore() {
+        return myTotalScore;
+    }
+
+    /**
+     * Returns the best score of a single game.
+     *
+     * @return the best score.
+     */
+    public int getBestScore() {
+        return myBestScore;
+    }
+
+    /**
+     * Returns the average score of a game.
+     *
+     * @return the average score, or 0 if no games were played.
+     */
+    public double getAverageScore() {
+        double result = 0;
+        if (myGames > 0) {
+            result = (double) myTotalScore / myGames;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the wall clock time of the run in nanoseconds.
+     *
+     * @return the elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return myElapsedNanos;
+    }
+
+    /**
+     * Returns the number of pieces frozen per second of wall clock time.
+     *
+     * @return the piece throughput.
+     */
+    public double getPiecesPerSecond() {
+        double result = 0;
+        if (myElapsedNanos > 0) {
+            result = myPieces * NANOS_PER_SECOND / myElapsedNanos;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("games: %d, pieces: %d, lines: %d, average score: %.1f, "
+                             + "best score: %d, pieces/sec: %.0f",
+                             myGames, myPieces, myLines, getAverageScore(),
+                             myBestScore, getPiecesPerSecond());
+    }
+}
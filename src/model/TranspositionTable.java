@@ -0,0 +1,148 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache of evaluation results keyed by board hashes.
+ *
+ * The table has a fixed number of entries grouped in buckets of two. The
+ * first entry of a bucket keeps the result searched to the greatest depth;
+ * the second entry is always replaced. A result can be reused for any probe
+ * that asks for the same or a smaller depth.
+ *
+ * The table may be used by several threads without locking. Each entry stores
+ * its key combined with its value and depth, so an entry torn by a concurrent
+ * store is detected and treated as a miss.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class TranspositionTable {
+
+    /**
+     * The keys of the entries, combined with the values and depths by exclusive or.
+     */
+    private final long[] myKeys;
+
+    /**
+     * The bits of the values of the entries.
+     */
+    private final long[] myValues;
+
+    /**
+     * The depths of the entries plus one; 0 marks an empty entry.
+     */
+    private final int[] myDepths;
+
+    /**
+     * Mask selecting the first entry of a bucket.
+     */
+    private final int myMask;
+
+    /**
+     * Constructs a TranspositionTable.
+     *
+     * @param theCapacity the minimum number of entries; rounded up to a power of two.
+     */
+    public TranspositionTable(final int theCapacity) {
+        if (theCapacity < 1 || theCapacity > 1 << (Integer.SIZE - 2)) {
+            throw new IllegalArgumentException("Invalid capacity: " + theCapacity);
+        }
+        final int capacity = Math.max(2, Integer.highestOneBit(theCapacity * 2 - 1));
+        myKeys = new long[capacity];
+        myValues = new long[capacity];
+        myDepths = new int[capacity];
+        myMask = capacity - 2;
+    }
+
+    /**
+     * Returns the number of entries of the table.
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return myKeys.length;
+    }
+
+    /**
+     * Looks up a result.
+     *
+     * @param theKey the board hash.
+     * @param theDepth the minimum depth the result must have been searched to.
+     * @return the value, or NaN if the table holds no such result.
+     */
+    public double probe(final long theKey, final int theDepth) {
+        final int bucket = bucket(theKey);
+        double result = Double.NaN;
+        for (int i = bucket; i < bucket + 2 && Double.isNaN(result); i++) {
+            final long value = myValues[i];
+            final int depth = myDepths[i];
+            if (depth > theDepth && check(myKeys[i], value, depth) == theKey) {
+                result = Double.longBitsToDouble(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Stores a result.
+     *
+     * @param theKey the board hash.
+     * @param theDepth the depth the result was searched to; at least 0.
+     * @param theValue the value.
+     */
+    public void store(final long theKey, final int theDepth, final double theValue) {
+        if (theDepth < 0 || theDepth == Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid depth: " + theDepth);
+        }
+        final int bucket = bucket(theKey);
+        final int depth = myDepths[bucket];
+        int slot = bucket + 1;
+        if (depth <= theDepth + 1
+            || check(myKeys[bucket], myValues[bucket], depth) == theKey) {
+            slot = bucket;
+        }
+        final long value = Double.doubleToRawLongBits(theValue);
+        myValues[slot] = value;
+        myDepths[slot] = theDepth + 1;
+        myKeys[slot] = check(theKey, value, theDepth + 1);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        Arrays.fill(myDepths, 0);
+        Arrays.fill(myKeys, 0);
+        Arrays.fill(myValues, 0);
+    }
+
+    /**
+     * Returns the first entry of the bucket of a key.
+     *
+     * @param theKey the board hash.
+     * @return the index of the first entry.
+     */
+    private int bucket(final long theKey) {
+        return (int) Zobrist.mix(theKey) & myMask;
+    }
+
+    /**
+     * Combines a key with the value and depth of its entry. Combining a stored
+     * key again gives back the original key.
+     *
+     * @param theKey the key.
+     * @param theValue the bits of the value.
+     * @param theDepth the stored depth.
+     * @return the combined key.
+     */
+    private static long check(final long theKey, final long theValue, final int theDepth) {
+        return theKey ^ theValue ^ Zobrist.mix(theDepth);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * A PieceGenerator choosing every piece independently and uniformly at random.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class UniformPieceGenerator extends SeededPieceGenerator {
+
+    /**
+     * The number of pieces generated.
+     */
+    private long myPosition;
+
+    /**
+     * Constructs a UniformPieceGenerator at the start of its sequence.
+     *
+     * @param theSeed the seed of the sequence.
+     */
+    public UniformPieceGenerator(final long theSeed) {
+        super(theSeed);
+    }
+
+    @Override
+    public TetrisPiece next() {
+        myPosition++;
+        return PIECES[nextInt(PIECES.length)];
+    }
+
+    @Override
+    public long getPosition() {
+        return myPosition;
+    }
+
+    @Override
+    public void setPosition(final long thePosition) {
+        if (thePosition < 0) {
+            throw new IllegalArgumentException("Invalid position: " + thePosition);
+        }
+        seek(thePosition);
+        myPosition = thePosition;
+    }
+
+    @Override
+    public PieceGenerator copy() {
+        final UniformPieceGenerator result = new UniformPieceGenerator(getSeed());
+        result.setPosition(myPosition);
+        return result;
+    }
+}
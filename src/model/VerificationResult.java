@@ -0,0 +1,158 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+/**
+ * The totals of a ReplayVerifier run.
+ * A VerificationResult is immutable.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+public final class VerificationResult {
+
+    /**
+     * Nanoseconds in one second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * The number of replays of each ReplayVerdict.Status.
+     */
+    private final long[] myCounts;
+
+    /**
+     * The number of actions simulated in all replays.
+     */
+    private final long myActions;
+
+    /**
+     * The number of replay bytes read.
+     */
+    private final long myBytes;
+
+    /**
+     * The wall clock time of the run in nanoseconds.
+     */
+    private final long myElapsedNanos;
+
+    /**
+     * Constructs a VerificationResult.
+     *
+     * @param theCounts the number of replays of each ReplayVerdict.Status, by ordinal.
+     * @param theActions the number of actions simulated in all replays.
+     * @param theBytes the number of replay bytes read.
+     * @param theElapsedNanos the wall clock time of the run in nanoseconds.
+     */
+    public VerificationResult(final long[] theCounts, final long theActions,
+                              final long theBytes, final long theElapsedNanos) {
+        if (theCounts.length != ReplayVerdict.Status.values().length) {
+            throw new IllegalArgumentException("One count per status is required");
+        }
+        myCounts = theCounts.clone();
+        myActions = theActions;
+        myBytes = theBytes;
+        myElapsedNanos = theElapsedNanos;
+    }
+
+    /**
+     * Returns the number of replays checked.
+     *
+     * @return the number of replays.
+     */
+    public long getReplays() {
+        long result = 0;
+        for (final long count : myCounts) {
+            result += count;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of replays with a verdict.
+     *
+     * @param theStatus the kind of verdict.
+     * @return the number of replays.
+     */
+    public long getCount(final ReplayVerdict.Status theStatus) {
+        return myCounts[theStatus.ordinal()];
+    }
+
+    /**
+     * Returns the number of actions simulated in all replays.
+     *
+     * @return the number of actions.
+     */
+    public long getActions() {
+        return myActions;
+    }
+
+    /**
+     * Returns the number of replay bytes read.
+     *
+     * @return the number of bytes.
+     */
+    public long getBytes() {
+        return myBytes;
+    }
+
+    /**
+     * Returns the wall clock time of the run in nanoseconds.
+     *
+     * @return the elapsed time in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return myElapsedNanos;
+    }
+
+    /**
+     * Returns the number of replays checked per second of wall clock time.
+     *
+     * @return the replay throughput.
+     */
+    public double getReplaysPerSecond() {
+        return perSecond(getReplays());
+    }
+
+    /**
+     * Returns the number of actions simulated per second of wall clock time.
+     *
+     * @return the action throughput.
+     */
+    public double getActionsPerSecond() {
+        return perSecond(myActions);
+    }
+
+    /**
+     * Returns an amount per second of wall clock time.
+     *
+     * @param theAmount the amount.
+     * @return the amount per second, or 0 if no time elapsed.
+     */
+    private double perSecond(final long theAmount) {
+        double result = 0;
+        if (myElapsedNanos > 0) {
+            result = theAmount * NANOS_PER_SECOND / myElapsedNanos;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder();
+        result.append("replays: ").append(getReplays());
+        for (final ReplayVerdict.Status status : ReplayVerdict.Status.values()) {
+            result.append(", ").append(status.name().toLowerCase()).append(": ")
+                  .append(myCounts[status.ordinal()]);
+        }
+        result.append(String.format(", actions: %d, bytes: %d, replays/sec: %.0f, "
+                                    + "actions/sec: %.0f",
+                                    myActions, myBytes, getReplaysPerSecond(),
+                                    getActionsPerSecond()));
+        return result.toString();
+    }
+}
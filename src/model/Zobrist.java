@@ -0,0 +1,122 @@
+/*
+ * TCSS 305
+ *
+ * An implementation of the classic game "Tetris".
+ */
+
+package model;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hash keys of board states.
+ *
+ * Every cell of a board has a random 64-bit key, and the hash of the frozen
+ * blocks is the exclusive or of the keys of the filled cells, so filling or
+ * emptying a cell updates the hash with a single exclusive or. The current
+ * piece is hashed from its shape and position with a 64-bit mixing function.
+ * Keys are generated from a fixed seed, so boards of the same size always
+ * hash the same state to the same value.
+ *
+ * @author Dino Hadzic
+ * @version 1.2
+ */
+final class Zobrist {
+
+    /**
+     * Seed of the cell keys.
+     */
+    private static final long SEED = 0x5DEECE66DL;
+
+    /**
+     * Multiplier of the mixing function.
+     */
+    private static final long MIX_1 = 0xBF58476D1CE4E5B9L;
+
+    /**
+     * Second multiplier of the mixing function.
+     */
+    private static final long MIX_2 = 0x94D049BB133111EBL;
+
+    /**
+     * Golden ratio increment separating the mixed values.
+     */
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Bits used for each field of a packed piece placement.
+     */
+    private static final int FIELD_BITS = 16;
+
+    /**
+     * Private constructor, to prevent instantiation of this class.
+     */
+    private Zobrist() {
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Creates the cell keys of a board. The key of cell (x, y) is at index y * width + x.
+     *
+     * @param theWidth the width of the board.
+     * @param theHeight the height of the board.
+     * @return the cell keys.
+     */
+    static long[] cellKeys(final int theWidth, final int theHeight) {
+        final SplittableRandom random = new SplittableRandom(SEED);
+        final long[] keys = new long[theWidth * theHeight];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+
+    /**
+     * Hashes the filled cells of a range of rows.
+     *
+     * @param theKeys the cell keys of the board.
+     * @param theWidth the width of the board.
+     * @param theRows occupancy masks of the rows, bottom row first.
+     * @param theFrom the first row to hash.
+     * @param theTo the row after the last row to hash.
+     * @return the exclusive or of the keys of the filled cells.
+     */
+    static long hashRows(final long[] theKeys, final int theWidth, final int[] theRows,
+                         final int theFrom, final int theTo) {
+        long result = 0;
+        for (int y = theFrom; y < theTo; y++) {
+            int mask = theRows[y];
+            while (mask != 0) {
+                result ^= theKeys[y * theWidth + Integer.numberOfTrailingZeros(mask)];
+                mask &= mask - 1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Hashes a piece placement.
+     *
+     * @param theShape the PieceTable shape index.
+     * @param theX the x coordinate of the position.
+     * @param theY the y coordinate of the position.
+     * @return the hash of the placement.
+     */
+    static long pieceKey(final int theShape, final int theX, final int theY) {
+        return mix(((long) theShape << FIELD_BITS | theX & 0xFFFF) << FIELD_BITS
+                   | theY & 0xFFFF);
+    }
+
+    /**
+     * Mixes a value into a well distributed 64-bit hash (the SplitMix64 finalizer).
+     *
+     * @param theValue the value.
+     * @return the hash of the value.
+     */
+    static long mix(final long theValue) {
+        long z = theValue + GOLDEN;
+        z = (z ^ z >>> 30) * MIX_1;
+        z = (z ^ z >>> 27) * MIX_2;
+        return z ^ z >>> 31;
+    }
+}
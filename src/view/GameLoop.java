@@ -0,0 +1,183 @@
+package view;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A game loop running the game logic on its own thread at a fixed timestep.
+ *
+ * Elapsed time is measured with System.nanoTime and accumulated; one logic
+ * tick runs for every full timestep in the accumulator, so the logic rate does
+ * not depend on how long painting takes. If the loop falls far behind, the
+ * backlog is dropped instead of running a burst of ticks. Between ticks the
+ * thread parks until shortly before the next tick is due and then yields
+ * until it is, because parking alone can wake up late by a millisecond or more.
+ *
+ * Other threads hand work to the loop with submit; submitted tasks run on the
+ * loop thread at the start of the next tick, so only the loop thread touches
+ * the game state.
+ *
+ * A tick or task that throws does not end the game silently: the exception
+ * is reported and the loop goes on on a new thread, dropping the rest of
+ * that tick. The largest tick jitter is kept so it can be checked against
+ * MAX_JITTER_NANOS.
+ * @author Dino Hadzic
+ * @version 9 December 2016
+ *
+ */
+class GameLoop implements Runnable, Thread.UncaughtExceptionHandler {
+
+    /**
+     * Logic ticks per second.
+     */
+    static final int TICKS_PER_SECOND = 60;
+
+    /**
+     * Length of one logic tick in nanoseconds.
+     */
+    static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1) / TICKS_PER_SECOND;
+
+    /**
+     * The tick jitter the loop is meant to stay below, in nanoseconds.
+     */
+    static final long MAX_JITTER_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Most ticks run to catch up after the loop fell behind.
+     */
+    private static final int MAX_CATCH_UP = 5;
+
+    /**
+     * Time before a tick is due when the loop stops parking and starts yielding.
+     */
+    private static final long SPIN_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Tasks waiting to run on the loop thread.
+     */
+    private final Queue<Runnable> myTasks = new ConcurrentLinkedQueue<Runnable>();
+
+    /**
+     * The logic run once per tick, after the submitted tasks.
+     */
+    private final Runnable myTick;
+
+    /**
+     * The loop thread, or null if the loop is not running.
+     */
+    private volatile Thread myThread;
+
+    /**
+     * Largest delay of a tick after its scheduled time, in nanoseconds.
+     */
+    private volatile long myMaxJitter;
+
+    /**
+     * Constructor.
+     * @param theTick the logic run once per tick on the loop thread.
+     */
+    GameLoop(final Runnable theTick) {
+        myTick = theTick;
+    }
+
+    /**
+     * Starts the loop thread.
+     */
+    synchronized void start() {
+        if (myThread == null) {
+            startThread();
+        }
+    }
+
+    /**
+     * Stops the loop thread after the current tick.
+     */
+    synchronized void stop() {
+        final Thread thread = myThread;
+        myThread = null;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Runs a task on the loop thread at the start of the next tick.
+     * @param theTask the task.
+     */
+    void submit(final Runnable theTask) {
+        myTasks.add(theTask);
+    }
+
+    /**
+     * Returns the largest delay of a tick after its scheduled time so far.
+     * @return the jitter in nanoseconds.
+     */
+    long getMaxJitterNanos() {
+        return myMaxJitter;
+    }
+
+    /**
+     * Reports an exception thrown on the loop thread and, unless the loop was
+     * stopped or the failure is an Error, goes on running ticks on a new thread.
+     * @param theThread the loop thread that failed.
+     * @param theFailure the exception.
+     */
+    @Override
+    public synchronized void uncaughtException(final Thread theThread,
+                                               final Throwable theFailure) {
+        theFailure.printStackTrace();
+        if (myThread == theThread) {
+            myThread = null;
+            if (!(theFailure instanceof Error)) {
+                startThread();
+            }
+        }
+    }
+
+    /**
+     * Creates and starts a new loop thread.
+     */
+    private void startThread() {
+        final Thread thread = new Thread(this, "Tetris game loop");
+        thread.setDaemon(true);
+        thread.setUncaughtExceptionHandler(this);
+        myThread = thread;
+        thread.start();
+    }
+
+    @Override
+    public void run() {
+        final Thread self = Thread.currentThread();
+        long previous = System.nanoTime();
+        long accumulator = 0;
+        while (myThread == self) {
+            final long now = System.nanoTime();
+            accumulator += now - previous;
+            previous = now;
+            if (accumulator > MAX_CATCH_UP * TICK_NANOS) {
+                accumulator = MAX_CATCH_UP * TICK_NANOS;
+            }
+            if (accumulator >= TICK_NANOS) {
+                // how late the first due tick runs
+                myMaxJitter = Math.max(myMaxJitter, accumulator - TICK_NANOS);
+            }
+            while (accumulator >= TICK_NANOS) {
+                Runnable task = myTasks.poll();
+                while (task != null) {
+                    task.run();
+                    task = myTasks.poll();
+                }
+                myTick.run();
+                accumulator -= TICK_NANOS;
+            }
+            final long wait = TICK_NANOS - accumulator;
+            if (wait > SPIN_NANOS) {
+                LockSupport.parkNanos(this, wait - SPIN_NANOS);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package view;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import model.Block;
+import model.TetrisPiece;
+
+/**
+ * An immutable picture of the game handed from the game loop to the
+ * Swing event dispatch thread: the board cells, the next piece, the score
+ * display values and the part of the board that changed since the last
+ * snapshot the event dispatch thread took.
+ * @author Dino Hadzic
+ * @version 9 December 2016
+ *
+ */
+final class Snapshot {
+
+    /**
+     * The board cells, bottom row first; empty cells are null.
+     */
+    private final List<Block[]> myGrid;
+
+    /**
+     * The next piece, or null.
+     */
+    private final TetrisPiece myNextPiece;
+
+    /**
+     * Player's Tetris score.
+     */
+    private final int myScore;
+
+    /**
+     * Number of lines cleared during current game.
+     */
+    private final int myLinesCleared;
+
+    /**
+     * Difficulty level of the game.
+     */
+    private final int myLevel;
+
+    /**
+     * The game over state.
+     */
+    private final boolean myGameOver;
+
+    /**
+     * Bounds of the changed board cells in board coordinates, or null.
+     */
+    private final Rectangle myDirtyCells;
+
+    /**
+     * Whether the whole board changed.
+     */
+    private final boolean myFullRepaint;
+
+    /**
+     * Constructor. The board cells are copied.
+     * @param theGrid the board cells, bottom row first.
+     * @param theNextPiece the next piece, or null.
+     * @param theScore the score.
+     * @param theLinesCleared the number of lines cleared.
+     * @param theLevel the level.
+     * @param theGameOver the game over state.
+     * @param theDirtyCells bounds of the changed board cells, or null.
+     * @param theFullRepaint whether the whole board changed.
+     */
+    Snapshot(final List<Block[]> theGrid, final TetrisPiece theNextPiece,
+             final int theScore, final int theLinesCleared, final int theLevel,
+             final boolean theGameOver, final Rectangle theDirtyCells,
+             final boolean theFullRepaint) {
+        final List<Block[]> grid = new ArrayList<Block[]>(theGrid.size());
+        for (final Block[] row : theGrid) {
+            grid.add(row.clone());
+        }
+        myGrid = Collections.unmodifiableList(grid);
+        myNextPiece = theNextPiece;
+        myScore = theScore;
+        myLinesCleared = theLinesCleared;
+        myLevel = theLevel;
+        myGameOver = theGameOver;
+        if (theDirtyCells == null) {
+            myDirtyCells = null;
+        } else {
+            myDirtyCells = new Rectangle(theDirtyCells);
+        }
+        myFullRepaint = theFullRepaint;
+    }
+
+    /**
+     * Constructor for a copy with a different dirty region. The board cells are shared.
+     * @param theOther the snapshot to copy.
+     * @param theDirtyCells bounds of the changed board cells, or null.
+     * @param theFullRepaint whether the whole board changed.
+     */
+    private Snapshot(final Snapshot theOther, final Rectangle theDirtyCells,
+                     final boolean theFullRepaint) {
+        myGrid = theOther.myGrid;
+        myNextPiece = theOther.myNextPiece;
+        myScore = theOther.myScore;
+        myLinesCleared = theOther.myLinesCleared;
+        myLevel = theOther.myLevel;
+        myGameOver = theOther.myGameOver;
+        myDirtyCells = theDirtyCells;
+        myFullRepaint = theFullRepaint;
+    }
+
+    /**
+     * Returns this snapshot with the changes of an older snapshot that was
+     * never taken added to its dirty region.
+     * @param theOlder the older snapshot, or null.
+     * @return the combined snapshot.
+     */
+    Snapshot include(final Snapshot theOlder) {
+        Snapshot result = this;
+        if (theOlder != null) {
+            Rectangle dirty = theOlder.myDirtyCells;
+            if (myDirtyCells != null) {
+                dirty = new Rectangle(myDirtyCells);
+                if (theOlder.myDirtyCells != null) {
+                    dirty.add(theOlder.myDirtyCells);
+                }
+            }
+            result = new Snapshot(this, dirty, myFullRepaint || theOlder.myFullRepaint);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the board cells, bottom row first; empty cells are null.
+     * The rows must not be modified.
+     * @return the board cells.
+     */
+    List<Block[]> getGrid() {
+        return myGrid;
+    }
+
+    /**
+     * Returns the next piece.
+     * @return the next piece, or null.
+     */
+    TetrisPiece getNextPiece() {
+        return myNextPiece;
+    }
+
+    /**
+     * Returns the score.
+     * @return the score.
+     */
+    int getScore() {
+        return myScore;
+    }
+
+    /**
+     * Returns the number of lines cleared.
+     * @return the lines cleared.
+     */
+    int getLinesCleared() {
+        return myLinesCleared;
+    }
+
+    /**
+     * Returns the level.
+     * @return the level.
+     */
+    int getLevel() {
+        return myLevel;
+    }
+
+    /**
+     * Returns the game over state.
+     * @return true if the game is over.
+     */
+    boolean isGameOver() {
+        return myGameOver;
+    }
+
+    /**
+     * Returns the bounds of the changed board cells. A cell (x, y) is the
+     * point (x, y) of the rectangle, with y counting rows up from the bottom.
+     * The rectangle must not be modified.
+     * @return the changed cells, or null if no cell changed.
+     */
+    Rectangle getDirtyCells() {
+        return myDirtyCells;
+    }
+
+    /**
+     * Returns whether the whole board changed.
+     * @return true if the whole board must be repainted.
+     */
+    boolean isFullRepaint() {
+        return myFullRepaint;
+    }
+}
@@ -3,8 +3,10 @@ package view;
 import java.awt.Color;
 import java.util.Random;
 
+import model.Block;
+
 /**
- * Class for setting a random tetris piece color from a list of colors.
+ * Class for setting a tetris piece color from a list of colors.
  * @author Dino Hadzic
  * @version 9 December 2016
  *
@@ -47,7 +49,7 @@ public class TetrisColors {
     private final Color myRed = new Color(255, 0, 0);
     
     /**
-     * All colors.
+     * All colors, in the order of the piece Block types.
      */
     private final Color[] myColors = {myTurqoise, myBlue, myOrange, 
         myYellow, myGreen, myPurple, myRed};
@@ -60,6 +62,20 @@ public class TetrisColors {
         
     }
     
+    /**
+     * Returns the color of a Block type. Each piece type always has the same
+     * color, so tiles drawn in it can be cached.
+     * @param theBlock the Block type.
+     * @return the color of the Block type; black for an empty block.
+     */
+    public Color getColor(final Block theBlock) {
+        Color result = Color.BLACK;
+        if (theBlock != Block.EMPTY) {
+            result = myColors[theBlock.ordinal() - 1];
+        }
+        return result;
+    }
+    
     /**
      * Returns randomly selected color.
      * @return randomly selected color.
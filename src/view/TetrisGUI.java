@@ -6,14 +6,17 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.util.List;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.JButton;
 import javax.swing.JFrame;
@@ -21,22 +24,36 @@ import javax.swing.JLabel;
 import javax.swing.JMenuBar;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.UnsupportedLookAndFeelException;
 
 
 import model.Block;
 import model.Board;
+import model.BoardAction;
+import model.BoardChange;
+import model.GameOverListener;
+import model.NextPieceListener;
+import model.PieceFrozenListener;
+import model.PieceMovedListener;
+import model.Point;
+import model.ScoreKeeper;
 import model.TetrisPiece;
 
 /**
 *  GUI for Tetris.
+*  
+*  The game runs on a GameLoop thread: gravity, input and the board
+*  listener all run there. After each tick that changed the game, the loop
+*  publishes an immutable Snapshot into a single slot, replacing any snapshot
+*  the event dispatch thread has not taken yet, and the event dispatch thread
+*  paints the latest snapshot.
 * 
 *  @author Dino Hadzic
 *  @version 26 November 2016
 */
-public class TetrisGUI implements Observer {
+public class TetrisGUI {
     
 
     /** 
@@ -54,46 +71,6 @@ public class TetrisGUI implements Observer {
      */
     private static final Dimension NEXT_PIECE_SIZE = new Dimension(120, 100);
     
-    /**
-     * Lines required to increase level of game.
-     */
-    private static final int LINES_FOR_LEVEL_UP = 5;
-    
-    /**
-     * Max level game can go to.
-     */
-    private static final int MAX_LEVEL = 10;
-    
-    /**
-     * Initial delay time for game ticks.
-     */
-    private static final int INITIAL_DELAY_TIME = MAX_LEVEL * 100;
-    
-    /**
-     * Amount of points a piece freezing gives the player.
-     */
-    private static final int FREEZE_PTS = 4;
-    
-    /**
-     * Score multiplier for single line clearance.
-     */
-    private static final int SINGLE_MULTIPLIER = 40;
-    
-    /**
-     * Score multiplier for double line clearance.
-     */
-    private static final int DOUBLE_MULTIPLIER = 100;
-    
-    /**
-     * Score multiplier for triple line clearance.
-     */
-    private static final int TRIPLE_MULTIPLIER = 300;
-    
-    /**
-     * Score multiplier for quadruple line clearance.
-     */
-    private static final int QUAD_MULTIPLIER = 1200;
-    
     /**
      * Height of the board.
      */
@@ -146,7 +123,7 @@ public class TetrisGUI implements Observer {
     private final JPanel myButtonPanel = new ButtonArea();
     
     /** A panel for drawing shapes. */
-    private final JPanel myBoardPanel = new BoardArea();
+    private final BoardArea myBoardPanel = new BoardArea();
      
     /**
      * Board for the Tetris game.
@@ -154,14 +131,49 @@ public class TetrisGUI implements Observer {
     private Board myBoard = new Board(WIDTH, HEIGHT);
     
     /**
-     * Tick timer.
+     * Game loop running the game logic.
+     */
+    private final GameLoop myLoop = new GameLoop(new TickListener());
+    
+    /**
+     * The snapshot published by the game loop and not yet taken for display, or null.
      */
-    private final Timer myTimer = new Timer(INITIAL_DELAY_TIME, new TickListener());
+    private final AtomicReference<Snapshot> mySnapshot = new AtomicReference<Snapshot>();
     
     /**
-    * Score tick timer.
-    */
-    private final Timer myScoreTimer = new Timer(60, new ScoreTickListener());
+     * The snapshot on display; used on the event dispatch thread only.
+     */
+    private Snapshot myShown;
+    
+    /**
+     * Whether the game over message was shown for the snapshot on display.
+     */
+    private boolean myGameOverShown;
+    
+    /**
+     * Ticks between two gravity steps.
+     */
+    private int myGravityTicks;
+    
+    /**
+     * Ticks since the last gravity step.
+     */
+    private int myTicksSinceStep;
+    
+    /**
+     * Whether the game changed since the last published snapshot.
+     */
+    private boolean myChanged;
+    
+    /**
+     * Bounds of the board cells changed since the last published snapshot, or null.
+     */
+    private Rectangle myDirtyCells;
+    
+    /**
+     * Whether the whole board changed since the last published snapshot.
+     */
+    private boolean myFullRepaint;
     
     /**
      * Next piece (for display).
@@ -189,19 +201,9 @@ public class TetrisGUI implements Observer {
     private boolean myPlaying;
     
     /**
-     * Number of lines cleared during current game.
-     */
-    private int myLinesCleared;
-    
-    /**
-     * Difficulty level of the game, based on lines cleared.
+     * Score, lines cleared and level of the current game.
      */
-    private int myDifficultyLevel = 1;
-    
-    /**
-     * Player's Tetris score.
-     */
-    private int myScore;
+    private final ScoreKeeper myScoring = new ScoreKeeper();
     
     /**
      * Score display.
@@ -223,11 +225,6 @@ public class TetrisGUI implements Observer {
      */
     private final JLabel myLinesRemainingDisplay = new JLabel();
     
-    /**
-     * Tells freeze score counter whether or not it is first piece.
-     */
-    private boolean myFirstPiece = true;
-    
     /**
      * Menu item for score details.
      */
@@ -238,6 +235,11 @@ public class TetrisGUI implements Observer {
      */
     private final TetrisColors myColors = new TetrisColors();
     
+    /**
+     * Cached tiles for drawing the board.
+     */
+    private final TileRenderer myTiles = new TileRenderer(myColors);
+    
     //private final MenuListener myMenu = new MenuListener();
 
     
@@ -256,7 +258,12 @@ public class TetrisGUI implements Observer {
         }
         
         
-        myBoard.addObserver(new ObserverClass());
+        final BoardListener listener = new BoardListener();
+        myBoard.addPieceMovedListener(listener);
+        myBoard.addPieceFrozenListener(listener);
+        myBoard.addNextPieceListener(listener);
+        myBoard.addGameOverListener(listener);
+        setUpScores();
         
         myFrame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         myFrame.add(myButtonPanel, BorderLayout.EAST);
@@ -265,84 +272,156 @@ public class TetrisGUI implements Observer {
         myFrame.add(myMenuBar, BorderLayout.NORTH);
         myFrame.pack();
         myFrame.addKeyListener(new PieceListener());
+        myFrame.addWindowListener(new CloseListener());
         myFrame.requestFocus();
         myFrame.setVisible(true);
+        myLoop.start();
     }
     
     /**
-     * Sets up score labels.
+     * Sets up score labels. The labels are added once and then
+     * only their text is updated when the values change.
      */
     private void setUpScores() {
-        myScoreDisplay.setText("Score: " + myScore);
         myButtonPanel.add(myScoreDisplay);
-        myLinesClearedDisplay.setText("Lines cleared: " + myLinesCleared);
         myButtonPanel.add(myLinesClearedDisplay);
-        myLevelDisplay.setText("Current level: " + myDifficultyLevel);
         myButtonPanel.add(myLevelDisplay);
-        myLinesRemainingDisplay.setText("Lines to next level: " 
-                      + (LINES_FOR_LEVEL_UP - myLinesCleared % LINES_FOR_LEVEL_UP));
         myButtonPanel.add(myLinesRemainingDisplay);
+        showScores();
     }
     
     /**
-     * Updates current level (difficulty of game).
+     * Shows the score, lines, level and lines to next level of the snapshot on display.
+     * A label is only changed, and so only repainted, when its text changes.
      */
-    private void updateLevel() {
-        myDifficultyLevel = myLinesCleared / LINES_FOR_LEVEL_UP + 1;
-        final int speedChangeRatio = 100;
-        final int levelForCalc = myDifficultyLevel - 1;
-        if (myDifficultyLevel <= MAX_LEVEL) {
-            myTimer.setDelay(INITIAL_DELAY_TIME - (speedChangeRatio * levelForCalc));
+    private void showScores() {
+        int score = 0;
+        int lines = 0;
+        int level = 1;
+        if (myShown != null) {
+            score = myShown.getScore();
+            lines = myShown.getLinesCleared();
+            level = myShown.getLevel();
         }
+        setText(myScoreDisplay, "Score: " + score);
+        setText(myLinesClearedDisplay, "Lines cleared: " + lines);
+        setText(myLevelDisplay, "Current level: " + level);
+        setText(myLinesRemainingDisplay, "Lines to next level: " 
+                      + (ScoreKeeper.LINES_FOR_LEVEL_UP
+                         - lines % ScoreKeeper.LINES_FOR_LEVEL_UP));
     }
     
     /**
-     * Updates current score when line(s) are cleared.
-     * @param theNumLines number of lines.
-     * @param theFreezeScore true if freeze scored.
+     * Sets the text of a label if it differs from the current text.
+     * @param theLabel the label.
+     * @param theText the new text.
      */
-    private void updateScore(final int theNumLines, final boolean theFreezeScore) {
-        final int single = 1;
-        final int d = 2;
-        final int triple = 3;
-        final int quad = 4;
-        
-        if (theFreezeScore) {
-            if (myFirstPiece) {
-                myFirstPiece = false;
-            } else {
-                myScore += FREEZE_PTS;
-            }
-        } else {
-            if (theNumLines == single) {
-                myScore += SINGLE_MULTIPLIER * myDifficultyLevel;
-            }
-            if (theNumLines == d) {
-                myScore += DOUBLE_MULTIPLIER * myDifficultyLevel;
-            }
-            if (theNumLines == triple) {
-                myScore += TRIPLE_MULTIPLIER * myDifficultyLevel;
-            }
-            if (theNumLines == quad) {
-                myScore += QUAD_MULTIPLIER * myDifficultyLevel;
-            }
+    private void setText(final JLabel theLabel, final String theText) {
+        if (!theText.equals(theLabel.getText())) {
+            theLabel.setText(theText);
         }
     }
     
     /**
-     * Called when game is over.
+     * Converts a delay to game loop ticks.
+     * @param theMillis the delay in milliseconds.
+     * @return the number of ticks, at least 1.
+     */
+    private static int toTicks(final int theMillis) {
+        return Math.max(1, Math.round(theMillis * GameLoop.TICKS_PER_SECOND / 1000f));
+    }
+    
+    /**
+     * Called when game is over. The message is shown by the event dispatch thread.
      */
     private void gameOver() {
         myGameOver = true;
         myPlaying = false;
-        JOptionPane.showMessageDialog(null, "GAME OVER",
-                        "Game over", JOptionPane.INFORMATION_MESSAGE);
+        myChanged = true;
     }
     
-    @Override
-    public void update(final Observable theObservable, final Object theOptionalArg) {
-        
-        
+    /**
+     * Publishes a snapshot of the game for the event dispatch thread.
+     * Called on the game loop thread. If the previous snapshot was not taken
+     * yet it is replaced, keeping its dirty region; otherwise the event
+     * dispatch thread is asked to take the new one.
+     */
+    private void publish() {
+        final Snapshot snapshot = new Snapshot(myCurrentPieces, myNextPiece,
+                                               myScoring.getScore(), myScoring.getLines(),
+                                               myScoring.getLevel(), myGameOver,
+                                               myDirtyCells, myFullRepaint);
+        myDirtyCells = null;
+        myFullRepaint = false;
+        myChanged = false;
+        Snapshot previous;
+        do {
+            previous = mySnapshot.get();
+        } while (!mySnapshot.compareAndSet(previous, snapshot.include(previous)));
+        if (previous == null) {
+            SwingUtilities.invokeLater(new Runnable() {
+                @Override
+                public void run() {
+                    showSnapshot();
+                }
+            });
+        }
+    }
+    
+    /**
+     * Takes the latest snapshot and shows it. Called on the event dispatch thread.
+     */
+    private void showSnapshot() {
+        final Snapshot snapshot = mySnapshot.getAndSet(null);
+        if (snapshot != null) {
+            final Snapshot previous = myShown;
+            myShown = snapshot;
+            showScores();
+            if (previous == null || snapshot.isFullRepaint()) {
+                myBoardPanel.repaint();
+            } else if (snapshot.getDirtyCells() != null) {
+                myBoardPanel.repaintCells(snapshot.getDirtyCells());
+            }
+            if (previous == null || previous.getNextPiece() != snapshot.getNextPiece()) {
+                myNextPiecePanel.repaint();
+            }
+            if (snapshot.isGameOver() && !myGameOverShown) {
+                myGameOverShown = true;
+                JOptionPane.showMessageDialog(null, "GAME OVER",
+                                "Game over", JOptionPane.INFORMATION_MESSAGE);
+            }
+            myGameOverShown = snapshot.isGameOver();
+        }
+    }
+    
+    /**
+     * Adds board cells to the dirty region. Called on the game loop thread.
+     * @param theCells the board cells.
+     */
+    private void addDirtyCells(final Point[] theCells) {
+        for (final Point p : theCells) {
+            final Rectangle cell = new Rectangle(p.x(), p.y(), 1, 1);
+            if (myDirtyCells == null) {
+                myDirtyCells = cell;
+            } else {
+                myDirtyCells.add(cell);
+            }
+        }
+    }
+    
+    /**
+     * Submits a move of the current piece to the game loop.
+     * @param theAction the move.
+     */
+    private void move(final BoardAction theAction) {
+        myLoop.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (myPlaying && !myPaused) {
+                    theAction.applyTo(myBoard);
+                }
+            }
+        });
     }
 
     /**
@@ -371,32 +450,52 @@ public class TetrisGUI implements Observer {
             super.paintComponent(theGraphics);
             final Graphics2D g2D = (Graphics2D) theGraphics;
             
-            
-            g2D.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
-                                 RenderingHints.VALUE_ANTIALIAS_ON);
-            
-            if (myCurrentPieces != null) {
-                final int arrSize = myCurrentPieces.size();
-                for (int i = arrSize - 1; i >= 0; i--) {
-                    final Block[] row = myCurrentPieces.get(i);
+            // tiles are cached images, so there is nothing to antialias.
+            if (myShown != null) {
+                final List<Block[]> grid = myShown.getGrid();
+                final int pieceSize = getCellSize();
+                // only the rows and columns inside the dirty region are drawn.
+                final Rectangle clip = g2D.getClipBounds(
+                                new Rectangle(0, 0, getWidth(), getHeight()));
+                final int top = myBoard.getHeight() - 1 - clip.y / pieceSize;
+                final int bottom = myBoard.getHeight() - 1
+                                   - (clip.y + clip.height - 1) / pieceSize;
+                final int left = clip.x / pieceSize;
+                final int right = Math.min((clip.x + clip.width - 1) / pieceSize,
+                                           myBoard.getWidth() - 1);
+                final int arrSize = Math.min(grid.size(), top + 1);
+                for (int i = arrSize - 1; i >= Math.max(bottom, 0); i--) {
+                    final Block[] row = grid.get(i);
                     if (row != null) {
-                        for (int j = 0; j < myBoard.getWidth(); j++) {
-                            if (row[j] != null) {
-                                final int pieceSize = 20;
-                                g2D.setColor(Color.BLACK);
-                                g2D.drawRect(j * pieceSize, 
-                                             (myBoard.getHeight() - i - 1)  * pieceSize, 
-                                         pieceSize, pieceSize);
-                                g2D.setColor(myColors.getRandomColor());
-                                g2D.fillRect(j * pieceSize + 1, 
-                                             (myBoard.getHeight() - i - 1)  * pieceSize + 1, 
-                                         pieceSize - 1, pieceSize - 1);
-                            }
+                        for (int j = left; j <= right; j++) {
+                            myTiles.drawTile(g2D, row[j], j * pieceSize,
+                                             (myBoard.getHeight() - i - 1) * pieceSize,
+                                             pieceSize);
                         }
                     }
                 }
             }
         }
+        
+        /**
+         * Returns the size of a board cell in pixels.
+         * @return the cell size.
+         */
+        private int getCellSize() {
+            return Math.max(1, Math.min(getWidth() / myBoard.getWidth(),
+                                        getHeight() / myBoard.getHeight()));
+        }
+        
+        /**
+         * Repaints the pixels of a block of board cells.
+         * @param theCells bounds of the cells; y counts rows up from the bottom.
+         */
+        void repaintCells(final Rectangle theCells) {
+            final int pieceSize = getCellSize();
+            repaint(theCells.x * pieceSize,
+                    (myBoard.getHeight() - theCells.y - theCells.height) * pieceSize,
+                    theCells.width * pieceSize, theCells.height * pieceSize);
+        }
     }
     
     /**
@@ -468,10 +567,11 @@ public class TetrisGUI implements Observer {
                                  RenderingHints.VALUE_ANTIALIAS_ON);
             g2D.setColor(Color.BLACK);
             
-            if (myNextPiece != null) {
-                final int arrSize = myNextPiece.getPoints().length;
+            if (myShown != null && myShown.getNextPiece() != null) {
+                final TetrisPiece nextPiece = myShown.getNextPiece();
+                final int arrSize = nextPiece.getPoints().length;
                 for (int i = 0; i < arrSize; i++) {
-                    final model.Point currPt = myNextPiece.getPoints()[i];
+                    final model.Point currPt = nextPiece.getPoints()[i];
                     final int pieceSize = 20;
                     g2D.drawRect(currPt.x() * pieceSize, -currPt.y() * pieceSize, 
                                  pieceSize, pieceSize);                    
@@ -494,56 +594,78 @@ public class TetrisGUI implements Observer {
         public void actionPerformed(final ActionEvent theEvent) {
             // start game
             if (theEvent.getSource() == myStartButton) {
-                if (!myPlaying) {
-                    myGameOver = false;
-                    myBoard.newGame();
-                    myTimer.start();
-                    myScoreTimer.start();
-                    myPlaying = true;
-                    myDifficultyLevel = 1;
-                    myLinesCleared = 0;
-                    myScore = 0;
-                    myTimer.setDelay(INITIAL_DELAY_TIME);
-                }
+                myLoop.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!myPlaying) {
+                            myGameOver = false;
+                            myBoard.newGame();
+                            myPlaying = true;
+                            myScoring.reset();
+                            myGravityTicks = toTicks(myScoring.getDelay());
+                            myTicksSinceStep = 0;
+                            myChanged = true;
+                        }
+                    }
+                });
                 myFrame.requestFocus();
             } else if (theEvent.getSource() == myEndButton) {
-                gameOver();
+                myLoop.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        gameOver();
+                    }
+                });
             }
             
         }   
     }
     
     /**
-     * Listener for the game ticks.
+     * Listener for the window closing. Stops the game loop and reports its
+     * largest tick jitter.
      * @author Dino Hadzic
      * @version 26 November 2016
      *
      */
-    private class TickListener implements ActionListener {
+    private class CloseListener extends WindowAdapter {
 
         @Override
-        public void actionPerformed(final ActionEvent theEvent) {
-            if (!myGameOver) {
-                myBoard.step();
+        public void windowClosing(final WindowEvent theEvent) {
+            myLoop.stop();
+            final long jitter = myLoop.getMaxJitterNanos();
+            String report = "Largest game loop tick jitter: "
+                            + TimeUnit.NANOSECONDS.toMicros(jitter) + " us";
+            if (jitter >= GameLoop.MAX_JITTER_NANOS) {
+                report += ", over the limit of "
+                          + TimeUnit.NANOSECONDS.toMicros(GameLoop.MAX_JITTER_NANOS) + " us";
             }
-            
-        }   
+            System.out.println(report);
+        }
     }
     
     /**
-     * Listener for the score update ticks.
+     * Listener for the game ticks. Runs once per game loop tick, steps the
+     * board when the gravity delay has passed and publishes a snapshot if
+     * the game changed.
      * @author Dino Hadzic
      * @version 26 November 2016
      *
      */
-    private class ScoreTickListener implements ActionListener {
+    private class TickListener implements Runnable {
 
         @Override
-        public void actionPerformed(final ActionEvent theEvent) {
-            if (!myGameOver) {
-                setUpScores();
+        public void run() {
+            if (myPlaying && !myPaused && !myGameOver) {
+                myTicksSinceStep++;
+                if (myTicksSinceStep >= myGravityTicks) {
+                    myTicksSinceStep = 0;
+                    myBoard.step();
+                }
+            }
+            if (myChanged) {
+                publish();
             }
-            
         }   
     }
     
@@ -559,34 +681,31 @@ public class TetrisGUI implements Observer {
         
         @Override
         public void keyPressed(final KeyEvent theEvent) {
-            if (!myPaused) {
-                if (theEvent.getKeyCode() == KeyEvent.VK_LEFT) {
-                    myBoard.left();
-                }
-                if (theEvent.getKeyCode() == KeyEvent.VK_RIGHT) {
-                    myBoard.right();
-                }
-                if (theEvent.getKeyCode() == KeyEvent.VK_UP) {
-                    myBoard.rotateCW();
-                }
-                if (theEvent.getKeyCode() == KeyEvent.VK_Z) {
-                    myBoard.rotateCCW();
-                }
-                if (theEvent.getKeyCode() == KeyEvent.VK_DOWN) {
-                    myBoard.down();
-                }
-                if (theEvent.getKeyCode() == KeyEvent.VK_SPACE) {
-                    myBoard.drop();
-                }     
+            if (theEvent.getKeyCode() == KeyEvent.VK_LEFT) {
+                move(BoardAction.LEFT);
+            }
+            if (theEvent.getKeyCode() == KeyEvent.VK_RIGHT) {
+                move(BoardAction.RIGHT);
+            }
+            if (theEvent.getKeyCode() == KeyEvent.VK_UP) {
+                move(BoardAction.ROTATE_CW);
+            }
+            if (theEvent.getKeyCode() == KeyEvent.VK_Z) {
+                move(BoardAction.ROTATE_CCW);
+            }
+            if (theEvent.getKeyCode() == KeyEvent.VK_DOWN) {
+                move(BoardAction.DOWN);
             }
+            if (theEvent.getKeyCode() == KeyEvent.VK_SPACE) {
+                move(BoardAction.DROP);
+            }     
             if (theEvent.getKeyCode() == KeyEvent.VK_P) {
-                if (myPaused) {
-                    myTimer.start();
-                    myPaused = false;
-                } else {
-                    myTimer.stop();
-                    myPaused = true;
-                }
+                myLoop.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        myPaused = !myPaused;
+                    }
+                });
             }
         }
 
@@ -603,35 +722,76 @@ public class TetrisGUI implements Observer {
     
     
     /**
-     * Inner class that implements Observer.
+     * Inner class that listens to the board. Runs on the game loop thread.
      * @author Dino Hadzic
      * @version 30 November 2016
      *
      */
-    private class ObserverClass implements Observer {
-        @SuppressWarnings("unchecked")
+    private class BoardListener implements PieceMovedListener, PieceFrozenListener,
+                                           NextPieceListener, GameOverListener {
         @Override
-        public void update(final Observable theObservable, final Object theArg) {
-            myBoard = (Board) theObservable;
-            if (theArg instanceof TetrisPiece) {
-                myNextPiece = (TetrisPiece) theArg;
-                updateScore(0, true);
+        public void pieceMoved(final BoardChange theChange) {
+            if (myCurrentPieces == null || theChange.isReset()) {
+                myCurrentPieces = myBoard.getBoardData();
+                myFullRepaint = true;
+            } else {
+                setCells(theChange.getPreviousCells(), null);
+                setCells(theChange.getCurrentCells(), theChange.getCurrentBlock());
+                addDirtyChange(theChange);
             }
-            if (theArg instanceof Boolean) {
-                myGameOver = (Boolean) theArg;
-                gameOver();
+            myChanged = true;
+        }
+
+        @Override
+        public void pieceFrozen(final BoardChange theChange) {
+            if (myCurrentPieces == null) {
+                myFullRepaint = true;
             }
-            if (theArg instanceof List) {
-                myCurrentPieces = (List<Block[]>) theArg;
-                myButtonPanel.repaint();
-                myBoardPanel.repaint();
-                myNextPiecePanel.repaint();
+            myCurrentPieces = myBoard.getBoardData();
+            addDirtyChange(theChange);
+            myChanged = true;
+            myScoring.pieceFrozen(theChange.getClearedRowCount(), myGameOver);
+            myGravityTicks = toTicks(myScoring.getDelay());
+        }
+
+        @Override
+        public void nextPiece(final TetrisPiece thePiece) {
+            myNextPiece = thePiece;
+            myChanged = true;
+        }
+
+        @Override
+        public void gameOver() {
+            TetrisGUI.this.gameOver();
+        }
+
+        /**
+         * Adds the part of the board a change touched to the dirty region: the
+         * cells the movable piece left and entered, the cells of a frozen piece,
+         * and every row from the lowest cleared row up, since those rows moved down.
+         * @param theChange the change.
+         */
+        private void addDirtyChange(final BoardChange theChange) {
+            addDirtyCells(theChange.getPreviousCells());
+            addDirtyCells(theChange.getCurrentCells());
+            addDirtyCells(theChange.getFrozenCells());
+            if (theChange.getClearedRowCount() > 0) {
+                final int row = theChange.getClearedRows()[0];
+                addDirtyCells(new Point[] {new Point(0, row),
+                    new Point(myBoard.getWidth() - 1, myCurrentPieces.size() - 1)});
             }
-            if (theArg instanceof Integer[]) {
-                final Integer[] arr = (Integer[]) theArg;
-                myLinesCleared += arr.length;
-                updateScore(arr.length, false);
-                updateLevel();
+        }
+        
+        /**
+         * Sets cells of the displayed board data.
+         * @param theCells the board cells to set.
+         * @param theBlock the block to set them to, or null to clear them.
+         */
+        private void setCells(final Point[] theCells, final Block theBlock) {
+            for (final Point p : theCells) {
+                if (p.y() >= 0 && p.y() < myCurrentPieces.size()) {
+                    myCurrentPieces.get(p.y())[p.x()] = theBlock;
+                }
             }
         }
     }
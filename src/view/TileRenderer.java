@@ -0,0 +1,103 @@
+package view;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+import model.Block;
+
+/**
+ * Draws board cells from cached tile images, one per Block type.
+ * A tile is rendered once in the pixel size of the device and reused for
+ * every cell of its type. Tiles are recreated when the tile size or the
+ * scale of the graphics (for example on a HiDPI screen) changes.
+ * @author Dino Hadzic
+ * @version 9 December 2016
+ *
+ */
+class TileRenderer {
+    
+    /**
+     * Colors of the Block types.
+     */
+    private final TetrisColors myColors;
+    
+    /**
+     * Cached tiles indexed by Block ordinal, or null if not yet rendered.
+     */
+    private final BufferedImage[] myTiles = new BufferedImage[Block.values().length];
+    
+    /**
+     * Size of a tile in user space.
+     */
+    private int myTileSize;
+    
+    /**
+     * Horizontal scale of the graphics the tiles were rendered for.
+     */
+    private double myScaleX;
+    
+    /**
+     * Vertical scale of the graphics the tiles were rendered for.
+     */
+    private double myScaleY;
+    
+    /**
+     * Constructor.
+     * @param theColors colors of the Block types.
+     */
+    TileRenderer(final TetrisColors theColors) {
+        myColors = theColors;
+    }
+    
+    /**
+     * Draws one cell.
+     * @param theGraphics the graphics to draw on.
+     * @param theBlock the Block type of the cell; empty cells are not drawn.
+     * @param theX x coordinate of the top left corner of the cell.
+     * @param theY y coordinate of the top left corner of the cell.
+     * @param theSize size of the cell.
+     */
+    void drawTile(final Graphics2D theGraphics, final Block theBlock,
+                  final int theX, final int theY, final int theSize) {
+        if (theBlock != null && theBlock != Block.EMPTY && theSize > 0) {
+            final AffineTransform transform = theGraphics.getTransform();
+            if (theSize != myTileSize || transform.getScaleX() != myScaleX
+                            || transform.getScaleY() != myScaleY) {
+                Arrays.fill(myTiles, null);
+                myTileSize = theSize;
+                myScaleX = transform.getScaleX();
+                myScaleY = transform.getScaleY();
+            }
+            if (myTiles[theBlock.ordinal()] == null) {
+                myTiles[theBlock.ordinal()] = createTile(theGraphics, theBlock);
+            }
+            theGraphics.drawImage(myTiles[theBlock.ordinal()], theX, theY,
+                                  theSize, theSize, null);
+        }
+    }
+    
+    /**
+     * Renders the tile of a Block type: a black outline filled with its color.
+     * @param theGraphics the graphics the tile will be drawn on.
+     * @param theBlock the Block type.
+     * @return the tile.
+     */
+    private BufferedImage createTile(final Graphics2D theGraphics, final Block theBlock) {
+        final int width = Math.max(1, (int) Math.ceil(myTileSize * Math.abs(myScaleX)));
+        final int height = Math.max(1, (int) Math.ceil(myTileSize * Math.abs(myScaleY)));
+        final BufferedImage tile = theGraphics.getDeviceConfiguration()
+                        .createCompatibleImage(width, height, Transparency.OPAQUE);
+        final Graphics2D g2D = tile.createGraphics();
+        g2D.scale((double) width / myTileSize, (double) height / myTileSize);
+        g2D.setColor(Color.BLACK);
+        g2D.fillRect(0, 0, myTileSize, myTileSize);
+        g2D.setColor(myColors.getColor(theBlock));
+        g2D.fillRect(1, 1, myTileSize - 1, myTileSize - 1);
+        g2D.dispose();
+        return tile;
+    }
+}